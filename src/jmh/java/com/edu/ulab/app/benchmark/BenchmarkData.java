@@ -0,0 +1,45 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Тестовые запросы для бенчмарков. Должность пользователя уникальна ({@code idx_ulab_edu_person_title}),
+ * поэтому каждый запрос получает свой номер.
+ */
+final class BenchmarkData {
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.currentTimeMillis());
+
+    private BenchmarkData() {
+    }
+
+    static UserBookRequest userBookRequest(int bookCount) {
+        long number = SEQUENCE.incrementAndGet();
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("Benchmark user " + number);
+        userRequest.setTitle("title-" + number);
+        userRequest.setAge(30);
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(bookRequests(bookCount));
+        return request;
+    }
+
+    static List<BookRequest> bookRequests(int bookCount) {
+        List<BookRequest> books = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            BookRequest book = new BookRequest();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i % 10);
+            book.setPageCount(100 + i);
+            books.add(book);
+        }
+        return books;
+    }
+}
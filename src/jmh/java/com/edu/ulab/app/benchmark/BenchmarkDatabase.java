@@ -0,0 +1,39 @@
+package com.edu.ulab.app.benchmark;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.Map;
+
+/**
+ * База для бенчмарков: локальный Postgres из {@code -Dbenchmark.jdbc-url} (например, из docker-compose.yml)
+ * или, если адрес не задан, контейнер Testcontainers той же версии, что в docker-compose.
+ */
+final class BenchmarkDatabase {
+    private static PostgreSQLContainer<?> container;
+
+    private BenchmarkDatabase() {
+    }
+
+    static synchronized Map<String, Object> datasourceProperties() {
+        String jdbcUrl = System.getProperty("benchmark.jdbc-url");
+        if (jdbcUrl != null) {
+            return Map.of(
+                    "spring.datasource.url", jdbcUrl,
+                    "spring.datasource.username", System.getProperty("benchmark.jdbc-username", "test"),
+                    "spring.datasource.password", System.getProperty("benchmark.jdbc-password", "test"));
+        }
+        if (container == null) {
+            container = new PostgreSQLContainer<>(DockerImageName.parse("postgres:14.2").asCompatibleSubstituteFor("postgres"))
+                    .withDatabaseName("mpl_ulab_db")
+                    .withUsername("test")
+                    .withPassword("test");
+            container.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(container::stop));
+        }
+        return Map.of(
+                "spring.datasource.url", container.getJdbcUrl(),
+                "spring.datasource.username", container.getUsername(),
+                "spring.datasource.password", container.getPassword());
+    }
+}
@@ -0,0 +1,92 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSON против CBOR и Smile: чтение и запись тела {@code /user/create}, запись ответа {@code /user/get}.
+ * <p>
+ * Размеры тел, в том числе после gzip, печатаются при подготовке каждой комбинации параметров.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryFormatBenchmark {
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"10", "100", "1000"})
+    public int bookCount;
+
+    private ObjectMapper objectMapper;
+    private UserBookRequest request;
+    private UserBookResponse response;
+    private byte[] encodedRequest;
+
+    @Setup
+    public void prepare() throws IOException {
+        objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        request = BenchmarkData.userBookRequest(bookCount);
+        List<Long> bookIds = LongStream.rangeClosed(1_000_000, 1_000_000L + bookCount - 1).boxed().toList();
+        response = UserBookResponse.builder()
+                .userId(999_999L)
+                .booksIdList(bookIds)
+                .build();
+        encodedRequest = objectMapper.writeValueAsBytes(request);
+        byte[] encodedResponse = objectMapper.writeValueAsBytes(response);
+        System.out.printf("%n%s, %d books: request %d B (gzip %d B), response %d B (gzip %d B)%n",
+                format, bookCount, encodedRequest.length, gzipSize(encodedRequest),
+                encodedResponse.length, gzipSize(encodedResponse));
+    }
+
+    @Benchmark
+    public byte[] encodeRequest() throws IOException {
+        return objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public UserBookRequest decodeRequest() throws IOException {
+        return objectMapper.readValue(encodedRequest, UserBookRequest.class);
+    }
+
+    @Benchmark
+    public byte[] encodeResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private static int gzipSize(byte[] bytes) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(bytes);
+        }
+        return buffer.size();
+    }
+}
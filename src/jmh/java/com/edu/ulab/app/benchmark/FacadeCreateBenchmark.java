@@ -0,0 +1,92 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.AppApplication;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserDataFacade#createUserWithBooks} целиком (транзакция, выдача id, insert пользователя и книг)
+ * на JPA- и JdbcTemplate-сервисах.
+ * <p>
+ * Контекст поднимается без веб-сервера, на каждый backend свой. Логи приложения и SQL выключены,
+ * чтобы измерялся путь до БД, а не вывод в консоль.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FacadeCreateBenchmark {
+    /**
+     * Таблицы JdbcTemplate-сервисов не входят в changelog Liquibase.
+     */
+    private static final String CREATE_TEMPLATE_TABLES_SQL = """
+            CREATE TABLE IF NOT EXISTS PERSON (ID BIGINT PRIMARY KEY, FULL_NAME VARCHAR(50), TITLE VARCHAR(50), AGE INT,
+                                               BOOK_COUNT BIGINT NOT NULL DEFAULT 0, PAGE_TOTAL BIGINT NOT NULL DEFAULT 0,
+                                               VERSION BIGINT NOT NULL DEFAULT 0);
+            CREATE TABLE IF NOT EXISTS BOOK (ID BIGINT PRIMARY KEY, TITLE VARCHAR(255), AUTHOR VARCHAR(255),
+                                             PAGE_COUNT BIGINT, USER_ID BIGINT);
+            CREATE INDEX IF NOT EXISTS IDX_BOOK_USER_ID ON BOOK (USER_ID);
+            """;
+
+    @Param({"JPA", "TEMPLATE"})
+    public String backend;
+
+    @Param({"1", "10", "100"})
+    public int bookCount;
+
+    private ConfigurableApplicationContext context;
+    private UserDataFacade userDataFacade;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        Map<String, Object> properties = new HashMap<>(BenchmarkDatabase.datasourceProperties());
+        properties.put("app.service.backend", backend);
+        properties.put("app.update-coalescing.enabled", "false");
+        properties.put("app.storage.persistence.enabled", "false");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.jpa.properties.hibernate.format_sql", "false");
+        properties.put("logging.level.com.edu.ulab", "WARN");
+        properties.put("logging.level.org.hibernate", "WARN");
+        context = new SpringApplicationBuilder(AppApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .run();
+        context.getBean(JdbcTemplate.class).execute(CREATE_TEMPLATE_TABLES_SQL);
+        userDataFacade = context.getBean(UserDataFacade.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserBookResponse createUserWithBooks() {
+        UserBookRequest request = BenchmarkData.userBookRequest(bookCount);
+        return userDataFacade.createUserWithBooks(request);
+    }
+}
@@ -0,0 +1,52 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Сериализация {@link UserBookResponse} тем же {@link ObjectMapper}, что строит Spring MVC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+    @Param({"1", "10", "100"})
+    public int bookCount;
+
+    private ObjectMapper objectMapper;
+    private UserBookResponse response;
+
+    @Setup
+    public void prepare() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<Long> bookIds = LongStream.rangeClosed(1_000_000, 1_000_000L + bookCount - 1).boxed().toList();
+        response = UserBookResponse.builder()
+                .userId(999_999L)
+                .booksIdList(bookIds)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] serializeUserBookResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,79 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость преобразований MapStruct на пути создания и чтения: запрос -> DTO -> сущность -> DTO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+    @Param({"1", "10", "100"})
+    public int bookCount;
+
+    private final UserMapper userMapper = Mappers.getMapper(UserMapper.class);
+    private final BookMapper bookMapper = Mappers.getMapper(BookMapper.class);
+
+    private UserBookRequest request;
+    private List<Book> books;
+
+    @Setup
+    public void prepare() {
+        request = BenchmarkData.userBookRequest(bookCount);
+        Person person = userMapper.userDtoToPerson(userMapper.userRequestToUserDto(request.getUserRequest()));
+        person.setId(1L);
+        books = new ArrayList<>(bookCount);
+        long id = 2;
+        for (BookRequest bookRequest : request.getBookRequests()) {
+            Book book = bookMapper.bookDtoToBook(bookMapper.bookRequestToBookDto(bookRequest));
+            book.setId(id++);
+            book.setPerson(person);
+            books.add(book);
+        }
+    }
+
+    @Benchmark
+    public List<Book> requestToEntity() {
+        UserDto userDto = userMapper.userRequestToUserDto(request.getUserRequest());
+        userMapper.userDtoToPerson(userDto);
+        List<BookDto> bookDtoList = new ArrayList<>(bookCount);
+        for (BookRequest bookRequest : request.getBookRequests()) {
+            BookDto bookDto = bookMapper.bookRequestToBookDto(bookRequest);
+            bookDto.setUserId(1L);
+            bookDtoList.add(bookDto);
+        }
+        return bookMapper.bookDtoListToBookList(bookDtoList);
+    }
+
+    @Benchmark
+    public List<BookDto> entityToDto() {
+        return bookMapper.bookListToBookDtoList(books);
+    }
+}
@@ -0,0 +1,148 @@
+package com.edu.ulab.app.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.logging.PayloadSamplingTurboFilter;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static com.edu.ulab.app.logging.LogMarkers.PAYLOAD;
+
+/**
+ * Стоимость логирования одного запроса на создание пользователя: те же сообщения, что пишут контроллер,
+ * фасад и сервисы, с тем же шаблоном, что у Spring Boot, в выходной поток без записи на диск.
+ * <ul>
+ *     <li>{@code FULL_SYNC} - все тела запросов, синхронный appender (как было);</li>
+ *     <li>{@code FULL_ASYNC} - все тела запросов, {@link AsyncAppender};</li>
+ *     <li>{@code SAMPLED_ASYNC} - тела для 1% requestId, {@link AsyncAppender} (production-режим).</li>
+ * </ul>
+ * Аллокации видны с профайлером GC:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="-f 1 -prof gc PayloadLoggingBenchmark"}.
+ * AsyncAppender с neverBlock при переполнении очереди отбрасывает INFO, поэтому FULL_ASYNC показывает
+ * стоимость для потока запроса, а не пропускную способность консоли.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadLoggingBenchmark {
+    private static final String PATTERN =
+            "%d{yyyy-MM-dd HH:mm:ss.SSS} %5p ${PID:- } --- [%15.15t] %-40.40logger{39} : %m%n%wEx";
+
+    @Param({"FULL_SYNC", "FULL_ASYNC", "SAMPLED_ASYNC"})
+    public String mode;
+
+    @Param({"10"})
+    public int bookCount;
+
+    private final AtomicLong requestNumber = new AtomicLong();
+    private LoggerContext loggerContext;
+    private Logger log;
+    private UserBookRequest request;
+    private UserDto userDto;
+    private List<BookDto> books;
+    private UserBookResponse response;
+
+    @Setup
+    public void configureLogging() {
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.reset();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(loggerContext);
+        output.setEncoder(encoder);
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.start();
+
+        Appender<ILoggingEvent> appender = output;
+        if (!mode.equals("FULL_SYNC")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(loggerContext);
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(output);
+            async.start();
+            appender = async;
+        }
+        PayloadSamplingTurboFilter filter = new PayloadSamplingTurboFilter();
+        filter.setSampleRate(mode.equals("SAMPLED_ASYNC") ? 0.01 : 1.0);
+        filter.start();
+        loggerContext.addTurboFilter(filter);
+
+        Logger root = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+        log = loggerContext.getLogger("com.edu.ulab.app.facade.UserDataFacade");
+
+        UserMapper userMapper = Mappers.getMapper(UserMapper.class);
+        BookMapper bookMapper = Mappers.getMapper(BookMapper.class);
+        request = BenchmarkData.userBookRequest(bookCount);
+        userDto = userMapper.userRequestToUserDto(request.getUserRequest());
+        userDto.setId(1L);
+        books = request.getBookRequests().stream().map(bookMapper::bookRequestToBookDto).toList();
+        response = UserBookResponse.builder()
+                .userId(1L)
+                .booksIdList(LongStream.rangeClosed(2, bookCount + 1).boxed().toList())
+                .build();
+    }
+
+    @TearDown
+    public void stopLogging() {
+        loggerContext.stop();
+    }
+
+    @Benchmark
+    public void logCreateRequest() {
+        MDC.put("requestId", "rq-" + requestNumber.incrementAndGet());
+        try {
+            log.info(PAYLOAD, "Got user book create request: {}", request);
+            log.info(PAYLOAD, "Mapped user request: {}", userDto);
+            log.info(PAYLOAD, "Created user: {}", userDto);
+            log.info(PAYLOAD, "Mapped books: {}", books);
+            log.info(PAYLOAD, "Created books: {}", books);
+            log.info("Created user {} with {} books", userDto.getId(), books.size());
+            log.info(PAYLOAD, "Response with created user and his books: {}", response);
+            log.info("request rqid={} method={} uri={} status={} durationMs={}",
+                    MDC.get("requestId"), "POST", "/app/api/v1/user/create", 200, 3);
+        } finally {
+            MDC.remove("requestId");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.edu.ulab.app.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Бинарные форматы Jackson для тел запросов и ответов: CBOR ({@code application/cbor})
+ * и Smile ({@code application/x-jackson-smile}).
+ * <p>
+ * Формат выбирается по {@code Accept}/{@code Content-Type}, JSON остаётся форматом по умолчанию.
+ * Конвертеры строятся из того же {@link Jackson2ObjectMapperBuilder}, что и JSON, поэтому настройки
+ * {@code spring.jackson.*} и модули одинаковы для всех форматов. Boot ставит эти бины на место
+ * конвертеров Spring MVC по умолчанию, собранных без его настроек.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
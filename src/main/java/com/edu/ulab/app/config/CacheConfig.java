@@ -0,0 +1,54 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Кэш собранных {@link UserBookResponse} по userId.
+ * <p>
+ * Caffeine вытесняет по W-TinyLFU с учётом частоты обращений, ограничение задаётся весом:
+ * пользователь с большим списком книг занимает пропорционально больше места.
+ * Статистика включена, поэтому hit/miss/eviction видны в actuator как метрики {@code cache.*}.
+ * <p>
+ * Записи сбрасываются фасадом после коммита изменений; {@code expire-after-write} ограничивает жизнь записи,
+ * которую читатель, начавший до коммита, успел положить уже после сброса.
+ */
+@Configuration
+@EnableCaching(order = CacheConfig.CACHE_ADVISOR_ORDER)
+public class CacheConfig {
+    public static final String USER_BOOKS_CACHE = "userBooks";
+    /**
+     * Кэш снаружи транзакционного advisor ({@link Ordered#LOWEST_PRECEDENCE}): попадание не открывает
+     * транзакцию и не берёт соединение, а промах кладёт ответ после завершения read-only транзакции.
+     */
+    public static final int CACHE_ADVISOR_ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+
+    @Value("${app.cache.user-books.maximum-weight:1000000}")
+    private long userBooksMaximumWeight;
+
+    @Value("${app.cache.user-books.expire-after-write:PT1M}")
+    private Duration userBooksExpireAfterWrite;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(USER_BOOKS_CACHE);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumWeight(userBooksMaximumWeight)
+                .weigher((key, value) -> value instanceof UserBookResponse response && response.getBooksIdList() != null
+                        ? 1 + response.getBooksIdList().size()
+                        : 1)
+                .expireAfterWrite(userBooksExpireAfterWrite)
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+}
@@ -0,0 +1,37 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.statistics.HibernateQueryListener;
+import com.edu.ulab.app.statistics.QueryTimingSessionListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Подключает к {@code SessionFactory} хуки статистики по запросам из пакета {@code statistics}.
+ * Медленные запросы дополнительно пишутся в лог самим Hibernate вместе с текстом SQL.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.hibernate-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class HibernateStatisticsConfig {
+
+    @Value("${app.hibernate-stats.slow-query-threshold:100ms}")
+    private Duration slowQueryThreshold;
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateStatisticsCustomizer() {
+        HibernateQueryListener listener = new HibernateQueryListener();
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, listener);
+            properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(listener));
+            properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, QueryTimingSessionListener.class.getName());
+            properties.put(AvailableSettings.LOG_SLOW_QUERY, slowQueryThreshold.toMillis());
+        };
+    }
+}
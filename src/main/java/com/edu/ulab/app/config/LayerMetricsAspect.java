@@ -0,0 +1,128 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.service.impl.BookServiceImplStorage;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImplStorage;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймеры {@code app.layer.calls} на публичных методах контроллера, фасада и реализаций сервисов.
+ * <p>
+ * Теги: {@code layer} (controller/facade/service), {@code class}, {@code method}, {@code operation}
+ * (create/update/get/delete/import/export, по префиксу имени метода) и {@code backend}. У сервисов backend
+ * определяется классом реализации, у контроллера и фасада - свойством {@code app.service.backend}.
+ * Для методов, возвращающих {@link CompletionStage}, время считается до завершения результата, то есть
+ * включает ожидание в очереди {@link com.edu.ulab.app.facade.DatabaseCallExecutor}.
+ * Аспект внешний по отношению к {@code @Transactional}, поэтому время включает коммит.
+ * Гистограммы для перцентилей включаются в {@code management.metrics.distribution}.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LayerMetricsAspect {
+    public static final String LAYER_CALLS_METRIC = "app.layer.calls";
+
+    private final MeterRegistry meterRegistry;
+    private final ServiceBackend serviceBackend;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public LayerMetricsAspect(MeterRegistry meterRegistry,
+                              @Value("${app.service.backend:TEMPLATE}") ServiceBackend serviceBackend) {
+        this.meterRegistry = meterRegistry;
+        this.serviceBackend = serviceBackend;
+    }
+
+    @Around("execution(public * com.edu.ulab.app.web.UserController.*(..))")
+    public Object timeController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "controller");
+    }
+
+    @Around("execution(public * com.edu.ulab.app.facade.UserDataFacade.*(..))")
+    public Object timeFacade(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "facade");
+    }
+
+    @Around("execution(public * com.edu.ulab.app.service.impl.*.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "service");
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String layer) throws Throwable {
+        Timer timer = timer(layer, AopUtils.getTargetClass(joinPoint.getTarget()), joinPoint.getSignature().getName());
+        long start = System.nanoTime();
+        boolean async = false;
+        try {
+            Object result = joinPoint.proceed();
+            if (result instanceof CompletionStage<?> stage) {
+                async = true;
+                return stage.whenComplete((value, error) -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+            }
+            return result;
+        } finally {
+            if (!async) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Timer timer(String layer, Class<?> type, String method) {
+        return timers.computeIfAbsent(new TimerKey(type, method), key -> Timer.builder(LAYER_CALLS_METRIC)
+                .description("Call latency per application layer")
+                .tag("layer", layer)
+                .tag("class", type.getSimpleName())
+                .tag("method", method)
+                .tag("operation", operation(method))
+                .tag("backend", layer.equals("service") ? backendOf(type).name() : serviceBackend.name())
+                .register(meterRegistry));
+    }
+
+    static String operation(String method) {
+        if (method.startsWith("create") || method.startsWith("save")) {
+            return "create";
+        }
+        if (method.startsWith("update") || method.startsWith("upsert")) {
+            return "update";
+        }
+        if (method.startsWith("get") || method.startsWith("find")) {
+            return "get";
+        }
+        if (method.startsWith("delete")) {
+            return "delete";
+        }
+        if (method.startsWith("import")) {
+            return "import";
+        }
+        if (method.startsWith("export")) {
+            return "export";
+        }
+        return "other";
+    }
+
+    private static ServiceBackend backendOf(Class<?> type) {
+        if (type == UserServiceImplTemplate.class || type == BookServiceImplTemplate.class) {
+            return ServiceBackend.TEMPLATE;
+        }
+        if (type == UserServiceImplStorage.class || type == BookServiceImplStorage.class) {
+            return ServiceBackend.STORAGE;
+        }
+        return ServiceBackend.JPA;
+    }
+
+    private record TimerKey(Class<?> type, String method) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.edu.ulab.app.config;
+
+/**
+ * Защита JPA-сервисов от параллельных обновлений, выбирается свойством {@code app.locking.mode}.
+ */
+public enum LockingMode {
+    /**
+     * {@code select ... for update}: параллельные писатели ждут друг друга на блокировке строки.
+     */
+    PESSIMISTIC,
+    /**
+     * Проверка {@code @Version} при записи без блокировок, конфликт повторяется
+     * через {@link com.edu.ulab.app.facade.OptimisticLockRetrier}.
+     */
+    OPTIMISTIC
+}
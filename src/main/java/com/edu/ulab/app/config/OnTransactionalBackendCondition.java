@@ -0,0 +1,19 @@
+package com.edu.ulab.app.config;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Бин нужен, только если {@code app.service.backend} пишет в БД, см. {@link ServiceBackend#isTransactional()}.
+ */
+public class OnTransactionalBackendCondition implements Condition {
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return Binder.get(context.getEnvironment())
+                .bind("app.service.backend", ServiceBackend.class)
+                .orElse(ServiceBackend.TEMPLATE)
+                .isTransactional();
+    }
+}
@@ -0,0 +1,26 @@
+package com.edu.ulab.app.config;
+
+/**
+ * Реализация сервисов, с которой работает {@link com.edu.ulab.app.facade.UserDataFacade}.
+ */
+public enum ServiceBackend {
+    /**
+     * Spring Data JPA: {@code UserServiceImpl}, {@code BookServiceImpl}.
+     */
+    JPA,
+    /**
+     * JdbcTemplate: {@code UserServiceImplTemplate}, {@code BookServiceImplTemplate}.
+     */
+    TEMPLATE,
+    /**
+     * In-memory {@link com.edu.ulab.app.storage.Storage}: {@code UserServiceImplStorage}, {@code BookServiceImplStorage}.
+     */
+    STORAGE;
+
+    /**
+     * Пишет ли реализация в БД: только тогда у фасада есть транзакция, откат которой отменяет запись.
+     */
+    public boolean isTransactional() {
+        return this != STORAGE;
+    }
+}
@@ -0,0 +1,79 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.service.impl.BookServiceImpl;
+import com.edu.ulab.app.service.impl.BookServiceImplStorage;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImpl;
+import com.edu.ulab.app.service.impl.UserServiceImplStorage;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Выбор реализации сервисов для фасада по свойству {@code app.service.backend}.
+ */
+@Slf4j
+@Configuration
+public class ServiceBackendConfig {
+    public static final String USER_SERVICE_BACKEND = "userServiceBackend";
+    public static final String BOOK_SERVICE_BACKEND = "bookServiceBackend";
+    public static final String FACADE_TRANSACTIONS = "facadeTransactions";
+    public static final String FACADE_READ_ONLY_TRANSACTIONS = "facadeReadOnlyTransactions";
+
+    @Value("${app.service.backend:TEMPLATE}")
+    private ServiceBackend serviceBackend;
+
+    @Bean(USER_SERVICE_BACKEND)
+    public UserService userServiceBackend(UserServiceImpl userServiceImpl,
+                                          UserServiceImplTemplate userServiceImplTemplate,
+                                          UserServiceImplStorage userServiceImplStorage) {
+        log.info("User service backend: {}", serviceBackend);
+        return switch (serviceBackend) {
+            case JPA -> userServiceImpl;
+            case TEMPLATE -> userServiceImplTemplate;
+            case STORAGE -> userServiceImplStorage;
+        };
+    }
+
+    @Bean(BOOK_SERVICE_BACKEND)
+    public BookService bookServiceBackend(BookServiceImpl bookServiceImpl,
+                                          BookServiceImplTemplate bookServiceImplTemplate,
+                                          BookServiceImplStorage bookServiceImplStorage) {
+        log.info("Book service backend: {}", serviceBackend);
+        return switch (serviceBackend) {
+            case JPA -> bookServiceImpl;
+            case TEMPLATE -> bookServiceImplTemplate;
+            case STORAGE -> bookServiceImplStorage;
+        };
+    }
+
+    /**
+     * Транзакции фасада. Для {@link ServiceBackend#STORAGE} транзакция не открывается:
+     * она заняла бы соединение из пула и всё равно не откатила бы запись в память.
+     */
+    @Bean(FACADE_TRANSACTIONS)
+    public TransactionOperations facadeTransactions(PlatformTransactionManager transactionManager) {
+        return facadeTransactions(transactionManager, false);
+    }
+
+    @Bean(FACADE_READ_ONLY_TRANSACTIONS)
+    public TransactionOperations facadeReadOnlyTransactions(PlatformTransactionManager transactionManager) {
+        return facadeTransactions(transactionManager, true);
+    }
+
+    private TransactionOperations facadeTransactions(PlatformTransactionManager transactionManager, boolean readOnly) {
+        if (!serviceBackend.isTransactional()) {
+            return TransactionOperations.withoutTransaction();
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate;
+    }
+}
@@ -0,0 +1,11 @@
+package com.edu.ulab.app.dto;
+
+/**
+ * Итог сверки счётчиков книг по одной пачке пользователей.
+ *
+ * @param lastUserId наибольший id в пачке, с него начинается следующая
+ * @param scanned    сколько пользователей проверено, 0 - пользователи кончились
+ * @param repaired   у скольких счётчики разошлись с таблицей книг и были исправлены
+ */
+public record BookTotalsReconciliation(long lastUserId, int scanned, int repaired) {
+}
@@ -0,0 +1,11 @@
+package com.edu.ulab.app.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class UserBookDto {
+    private UserDto user;
+    private List<BookDto> books;
+}
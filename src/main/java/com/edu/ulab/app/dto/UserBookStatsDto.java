@@ -0,0 +1,14 @@
+package com.edu.ulab.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBookStatsDto {
+    private Long userId;
+    private long bookCount;
+    private long pageTotal;
+}
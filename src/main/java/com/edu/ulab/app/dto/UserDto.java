@@ -8,4 +8,8 @@ public class UserDto {
     private String fullName;
     private String title;
     private int age;
+    /**
+     * Растёт при каждом изменении пользователя или его книг, из неё строится ETag.
+     */
+    private long version;
 }
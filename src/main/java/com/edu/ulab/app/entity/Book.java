@@ -17,7 +17,7 @@ public class Book {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequence")
     @SequenceGenerator(name = "sequence", sequenceName = "sequence", allocationSize = 100)
-    private Integer id;
+    private Long id;
 
     @Column(nullable = false)
     private String title;
@@ -28,7 +28,15 @@ public class Book {
     @Column(nullable = false)
     private long pageCount;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    /**
+     * Без внешнего ключа: книги удалённого пользователя сверх {@code app.book-purge.chunk-size}
+     * переживают его строку, пока их не дочистит {@code BookPurgeJob}.
+     */
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "person_id", nullable = false)
+    @JoinColumn(name = "person_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Person person;
 }
@@ -16,7 +16,7 @@ public class Person {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequence")
     @SequenceGenerator(name = "sequence", sequenceName = "sequence", allocationSize = 100)
-    private Integer id;
+    private Long id;
 
     @Column(nullable = false)
     private String fullName;
@@ -27,8 +27,18 @@ public class Person {
     @Column(nullable = false)
     private int age;
 
-//    @Column(nullable = false)
-//    private int count;
+    /**
+     * Счётчики книг пользователя пишутся только update-запросами сервисов книг, Hibernate их не перезаписывает.
+     */
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long bookCount;
+
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long pageTotal;
+
+    @Version
+    @Column(nullable = false)
+    private long version;
 
     @OneToMany(mappedBy = "person", cascade = {
             CascadeType.MERGE,
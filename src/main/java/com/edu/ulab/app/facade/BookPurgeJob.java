@@ -0,0 +1,84 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.OnTransactionalBackendCondition;
+import com.edu.ulab.app.config.ServiceBackendConfig;
+import com.edu.ulab.app.repository.BookPurgeQueueRepository;
+import com.edu.ulab.app.search.BookSearchIndex;
+import com.edu.ulab.app.service.BookService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Фоновая дочистка книг удалённых пользователей.
+ * <p>
+ * Каждый раунд - отдельная короткая транзакция: не больше {@code users-per-round} пользователей из очереди
+ * и не больше {@code chunk-size} книг каждого. Пользователь уходит из очереди, когда его книги кончились.
+ * Удалённые книги после коммита убираются и из {@link BookSearchIndex}.
+ * Отключается {@code app.book-purge.enabled=false}, например когда рядом нет таблицы очереди.
+ * Для {@code app.service.backend=STORAGE} не создаётся: там книги удаляются вместе с пользователем.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.book-purge.enabled", havingValue = "true", matchIfMissing = true)
+@Conditional(OnTransactionalBackendCondition.class)
+public class BookPurgeJob {
+    private final BookService bookService;
+    private final BookPurgeQueueRepository bookPurgeQueueRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int usersPerRound;
+
+    public BookPurgeJob(@Qualifier(ServiceBackendConfig.BOOK_SERVICE_BACKEND) BookService bookService,
+                        BookPurgeQueueRepository bookPurgeQueueRepository,
+                        BookSearchIndex bookSearchIndex,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${app.book-purge.chunk-size:1000}") int chunkSize,
+                        @Value("${app.book-purge.users-per-round:100}") int usersPerRound) {
+        this.bookService = bookService;
+        this.bookPurgeQueueRepository = bookPurgeQueueRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.usersPerRound = usersPerRound;
+    }
+
+    @Scheduled(fixedDelayString = "${app.book-purge.interval:PT1S}")
+    public void purge() {
+        long rounds = 0;
+        Integer pending;
+        do {
+            pending = transactionTemplate.execute(status -> purgeRound());
+            rounds++;
+        } while (pending != null && pending > 0);
+        if (rounds > 1) {
+            log.info("Book purge finished in {} rounds", rounds - 1);
+        }
+    }
+
+    /**
+     * Возвращает число пользователей, взятых в раунд, 0 - очередь пуста.
+     */
+    private int purgeRound() {
+        List<Long> userIds = bookPurgeQueueRepository.findNext(usersPerRound);
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        Set<Long> remaining = bookService.deleteBookChunksByUserIds(userIds, chunkSize);
+        bookPurgeQueueRepository.remove(userIds.stream()
+                .filter(userId -> !remaining.contains(userId))
+                .toList());
+        bookSearchIndex.removeUsersAfterCommit(userIds);
+        return userIds.size();
+    }
+}
@@ -0,0 +1,99 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.web.response.UserBookResponse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Разница между сохранёнными книгами пользователя и запрошенным списком.
+ * <p>
+ * Книга из запроса с id сопоставляется с сохранённой по id, без id - с ещё не сопоставленной сохранённой книгой
+ * с тем же названием и автором. Совпавшие без изменений пропускаются, изменённые и новые идут в upsert,
+ * сохранённые книги, которых нет в запросе, удаляются. Запрошенным книгам проставляются id сопоставленных.
+ */
+final class BookSetDiff {
+    private final List<BookDto> upserts = new ArrayList<>();
+    private final List<Long> deletedIds = new ArrayList<>();
+    private int inserted;
+    private int updated;
+    private int unchanged;
+
+    private BookSetDiff() {
+    }
+
+    static BookSetDiff compute(Long userId, List<BookDto> storedBooks, List<BookDto> requestedBooks) {
+        BookSetDiff diff = new BookSetDiff();
+        Map<Long, BookDto> unmatchedById = new LinkedHashMap<>();
+        storedBooks.forEach(book -> unmatchedById.put(book.getId(), book));
+
+        for (BookDto requested : requestedBooks) {
+            if (requested.getId() != null) {
+                BookDto stored = unmatchedById.remove(requested.getId());
+                if (stored == null) {
+                    throw new NotFoundException("Book with id " + requested.getId() + " not found for user " + userId);
+                }
+                diff.match(requested, stored);
+            }
+        }
+
+        Map<BookKey, Deque<BookDto>> unmatchedByKey = new HashMap<>();
+        unmatchedById.values().forEach(book -> unmatchedByKey.computeIfAbsent(BookKey.of(book), key -> new ArrayDeque<>())
+                .add(book));
+        for (BookDto requested : requestedBooks) {
+            if (requested.getId() != null) {
+                continue;
+            }
+            Deque<BookDto> candidates = unmatchedByKey.get(BookKey.of(requested));
+            BookDto stored = candidates == null ? null : candidates.poll();
+            if (stored == null) {
+                diff.upserts.add(requested);
+                diff.inserted++;
+            } else {
+                unmatchedById.remove(stored.getId());
+                requested.setId(stored.getId());
+                diff.match(requested, stored);
+            }
+        }
+
+        diff.deletedIds.addAll(unmatchedById.keySet());
+        return diff;
+    }
+
+    List<BookDto> upserts() {
+        return upserts;
+    }
+
+    List<Long> deletedIds() {
+        return deletedIds;
+    }
+
+    UserBookResponse.BookChanges changes() {
+        return new UserBookResponse.BookChanges(inserted, updated, deletedIds.size(), unchanged);
+    }
+
+    private void match(BookDto requested, BookDto stored) {
+        if (Objects.equals(requested.getTitle(), stored.getTitle())
+                && Objects.equals(requested.getAuthor(), stored.getAuthor())
+                && requested.getPageCount() == stored.getPageCount()) {
+            unchanged++;
+        } else {
+            upserts.add(requested);
+            updated++;
+        }
+    }
+
+    private record BookKey(String title, String author) {
+        static BookKey of(BookDto book) {
+            return new BookKey(book.getTitle(), book.getAuthor());
+        }
+    }
+}
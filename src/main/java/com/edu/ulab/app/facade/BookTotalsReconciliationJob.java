@@ -0,0 +1,59 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.ServiceBackendConfig;
+import com.edu.ulab.app.dto.BookTotalsReconciliation;
+import com.edu.ulab.app.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Фоновая сверка счётчиков {@code book_count}/{@code page_total} пользователей с таблицей книг.
+ * <p>
+ * Проходит всех пользователей по возрастанию id пачками по {@code batch-size}, каждая пачка - отдельная
+ * короткая транзакция. Расхождение означает запись в обход сервисов книг или ошибку в них, поэтому
+ * исправленные строки пишутся в лог и считаются в метрике {@code app.book-totals.repaired}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.book-totals.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class BookTotalsReconciliationJob {
+    private final UserService userService;
+    private final int batchSize;
+    private final Counter repairedCounter;
+
+    public BookTotalsReconciliationJob(@Qualifier(ServiceBackendConfig.USER_SERVICE_BACKEND) UserService userService,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.book-totals.reconcile.batch-size:500}") int batchSize) {
+        this.userService = userService;
+        this.batchSize = batchSize;
+        this.repairedCounter = Counter.builder("app.book-totals.repaired")
+                .description("Users whose book counters drifted from the book table and were repaired")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.book-totals.reconcile.interval:PT10M}",
+            fixedDelayString = "${app.book-totals.reconcile.interval:PT10M}")
+    public void reconcile() {
+        long afterUserId = 0;
+        long scanned = 0;
+        long repaired = 0;
+        BookTotalsReconciliation batch;
+        do {
+            batch = userService.reconcileBookTotals(afterUserId, batchSize);
+            afterUserId = batch.lastUserId();
+            scanned += batch.scanned();
+            repaired += batch.repaired();
+            if (batch.repaired() > 0) {
+                repairedCounter.increment(batch.repaired());
+                log.warn("Repaired book counters: {} users up to id {}", batch.repaired(), batch.lastUserId());
+            }
+        } while (batch.scanned() == batchSize);
+        log.info("Book counters reconciled: scanned {}, repaired {}", scanned, repaired);
+    }
+}
@@ -0,0 +1,174 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Изолированный пул для обращений к БД из контроллера (bulkhead).
+ * <p>
+ * Потоков столько, сколько соединений в пуле Hikari за вычетом {@code app.async.reserved-connections}:
+ * задача в пуле не ждёт соединение, а резерв остаётся тому, что работает мимо пула - импорту и выгрузке,
+ * коммиттеру объединённых обновлений и фоновым задачам. Импорт и выгрузка держат соединение долго, поэтому
+ * одновременно их не больше {@code app.async.bulk-permits} ({@link #acquireBulkPermit()}), лишние получают 503.
+ * Резерв должен покрывать эти разрешения, потоки коммиттера и планировщика.
+ * <p>
+ * Очередь ограничена: когда она заполнена, задача сразу отклоняется с {@link ServiceOverloadedException},
+ * и HTTP-поток освобождается, а не висит в ожидании. При {@code app.async.enabled=false} вызов выполняется
+ * в потоке запроса, как раньше.
+ * <p>
+ * Метрики: {@code app.db-executor.queue.wait} - время задачи в очереди до начала выполнения,
+ * {@code app.db-executor.queue.size} и {@code app.db-executor.active}. Ожидание соединения в самом пуле
+ * Hikari публикуется Spring Boot как {@code hikaricp.connections.acquire}.
+ */
+@Slf4j
+@Component
+public class DatabaseCallExecutor implements MeterBinder {
+    private final ThreadPoolExecutor executor;
+    private final Semaphore bulkPermits;
+    private final int bulkPermitCount;
+    private volatile Timer queueWaitTimer;
+
+    public DatabaseCallExecutor(@Value("${app.async.enabled:true}") boolean enabled,
+                                @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                @Value("${app.async.reserved-connections:4}") int reservedConnections,
+                                @Value("${app.async.bulk-permits:2}") int bulkPermits,
+                                @Value("${app.async.queue-capacity:100}") int queueCapacity) {
+        if (bulkPermits < 1 || bulkPermits >= reservedConnections) {
+            throw new IllegalArgumentException("Bulk permits must be positive and leave reserved connections for background jobs: "
+                    + bulkPermits + " of " + reservedConnections);
+        }
+        int threads = Math.max(1, poolSize - reservedConnections);
+        log.info("Database call executor: {} threads, {} of {} connections reserved, {} bulk permits",
+                threads, poolSize - threads, poolSize, bulkPermits);
+        this.executor = enabled
+                ? new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("db-call-"),
+                new ThreadPoolExecutor.AbortPolicy())
+                : null;
+        this.bulkPermits = new Semaphore(bulkPermits);
+        this.bulkPermitCount = bulkPermits;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(call.get());
+        }
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                recordQueueWait(submittedAt);
+                return callWithContext(context, call);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Database call rejected: active {}, queued {}", executor.getActiveCount(), executor.getQueue().size());
+            throw new ServiceOverloadedException("Too many concurrent requests, retry later");
+        }
+    }
+
+    public CompletableFuture<Void> run(Runnable call) {
+        return submit(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Разрешение на импорт или выгрузку, которые идут в своём потоке и держат соединение всё время операции.
+     * Освобождается в {@link BulkPermit#close()}.
+     */
+    public BulkPermit acquireBulkPermit() {
+        if (!bulkPermits.tryAcquire()) {
+            log.warn("Bulk operation rejected: {} running", bulkPermitCount);
+            throw new ServiceOverloadedException("Too many concurrent imports and exports, retry later");
+        }
+        return new BulkPermit(bulkPermits);
+    }
+
+    public int queueDepth() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("app.db-executor.bulk.active", bulkPermits, permits -> bulkPermitCount - permits.availablePermits())
+                .description("Imports and exports holding a reserved connection")
+                .register(registry);
+        if (executor == null) {
+            return;
+        }
+        queueWaitTimer = Timer.builder("app.db-executor.queue.wait")
+                .description("Time a database call waits in the bulkhead queue")
+                .register(registry);
+        Gauge.builder("app.db-executor.queue.size", executor, pool -> pool.getQueue().size())
+                .description("Database calls waiting in the bulkhead queue")
+                .register(registry);
+        Gauge.builder("app.db-executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Database calls being executed")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Database call executor did not finish in time, {} calls dropped", executor.shutdownNow().size());
+            }
+        }
+    }
+
+    private void recordQueueWait(long submittedAt) {
+        Timer timer = queueWaitTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static <T> T callWithContext(Map<String, String> context, Supplier<T> call) {
+        if (context != null) {
+            MDC.setContextMap(context);
+        }
+        try {
+            return call.get();
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    public static final class BulkPermit implements AutoCloseable {
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private BulkPermit(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
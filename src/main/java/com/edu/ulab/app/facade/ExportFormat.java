@@ -0,0 +1,28 @@
+package com.edu.ulab.app.facade;
+
+public enum ExportFormat {
+    /**
+     * Одна JSON строка на пользователя вместе с его книгами.
+     */
+    JSONL("application/x-ndjson", "jsonl"),
+    /**
+     * Одна CSV строка на пару пользователь-книга.
+     */
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,85 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.LockingMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Повтор транзакции при конфликте оптимистической блокировки.
+ * <p>
+ * Вызывается снаружи транзакции фасада, чтобы каждая попытка шла в новой транзакции.
+ * Пауза между попытками растёт экспоненциально до {@code max-backoff} со случайным разбросом (full jitter),
+ * чтобы конфликтующие писатели не повторяли одновременно. В режиме {@link LockingMode#PESSIMISTIC} вызов
+ * выполняется один раз. Конфликты, повторы и исчерпанные попытки считаются метриками {@code app.locking.*}.
+ */
+@Slf4j
+@Component
+public class OptimisticLockRetrier {
+    private final LockingMode lockingMode;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Counter conflicts;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public OptimisticLockRetrier(@Value("${app.locking.mode:PESSIMISTIC}") LockingMode lockingMode,
+                                 @Value("${app.locking.retry.max-attempts:5}") int maxAttempts,
+                                 @Value("${app.locking.retry.initial-backoff:10ms}") Duration initialBackoff,
+                                 @Value("${app.locking.retry.max-backoff:200ms}") Duration maxBackoff,
+                                 MeterRegistry meterRegistry) {
+        this.lockingMode = lockingMode;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.conflicts = Counter.builder("app.locking.conflicts")
+                .description("Optimistic lock conflicts")
+                .register(meterRegistry);
+        this.retries = Counter.builder("app.locking.retries")
+                .description("Transactions retried after an optimistic lock conflict")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("app.locking.retries.exhausted")
+                .description("Transactions failed after all retry attempts")
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(Supplier<T> transaction) {
+        if (lockingMode != LockingMode.OPTIMISTIC) {
+            return transaction.get();
+        }
+        long backoffNanos = initialBackoffNanos;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.get();
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    log.warn("Optimistic lock conflict, giving up after {} attempts: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                log.info("Optimistic lock conflict, attempt {} of {}: {}", attempt, maxAttempts, e.getMessage());
+                retries.increment();
+                sleep(ThreadLocalRandom.current().nextLong(backoffNanos + 1));
+                backoffNanos = Math.min(backoffNanos * 2, maxBackoffNanos);
+            }
+        }
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
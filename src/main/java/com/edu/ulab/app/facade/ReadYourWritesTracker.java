@@ -0,0 +1,65 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.ReadWriteRoutingDataSource;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Окно read-your-writes: в течение {@code app.datasource.routing.read-your-writes-window} после записи
+ * пользователя его чтения идут на основную базу, а не на реплику, которая может отставать.
+ * Окно отсчитывается от коммита. Нулевое окно или выключенная маршрутизация отключают учёт.
+ */
+@Component
+public class ReadYourWritesTracker {
+    private final Cache<Long, Boolean> recentWrites;
+
+    public ReadYourWritesTracker(@Value("${app.datasource.routing.enabled:false}") boolean routingEnabled,
+                                 @Value("${app.datasource.routing.read-your-writes-window:0s}") Duration window,
+                                 @Value("${app.datasource.routing.read-your-writes-max-users:100000}") long maxUsers) {
+        this.recentWrites = routingEnabled && !window.isZero()
+                ? Caffeine.newBuilder()
+                        .expireAfterWrite(window)
+                        .maximumSize(maxUsers)
+                        .build()
+                : null;
+    }
+
+    public void recordWrite(Long userId) {
+        recordWrites(List.of(userId));
+    }
+
+    public void recordWrites(Collection<Long> userIds) {
+        if (recentWrites == null || userIds.isEmpty()) {
+            return;
+        }
+        // отметка до коммита закрывает промежуток между коммитом и afterCommit
+        userIds.forEach(userId -> recentWrites.put(userId, Boolean.TRUE));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userIds.forEach(userId -> recentWrites.put(userId, Boolean.TRUE));
+                }
+            });
+        }
+    }
+
+    /**
+     * Выполняет чтение данных пользователя на основной базе, если он недавно менялся.
+     */
+    public <T> T read(Long userId, Supplier<T> call) {
+        if (recentWrites != null && recentWrites.getIfPresent(userId) != null) {
+            return ReadWriteRoutingDataSource.onPrimary(call);
+        }
+        return call.get();
+    }
+}
@@ -0,0 +1,242 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.ServiceBackend;
+import com.edu.ulab.app.repository.IdempotentRequest;
+import com.edu.ulab.app.repository.IdempotentRequestRepository;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Идемпотентное создание пользователя с книгами по заголовку {@code rqid}.
+ * <p>
+ * Повтор с тем же rqid получает исходный {@link UserBookResponse} без повторной записи. Ответы лежат
+ * в ограниченном кэше в памяти с истечением по времени и в таблице {@code idempotent_request}, которая
+ * закрывает промахи кэша и рестарты. Ключ занимается вставкой строки в той же транзакции, что и создание:
+ * параллельный повтор ждёт её на уникальном ключе и после коммита читает готовый ответ, а при откате
+ * выполняет создание сам. Повтор с тем же rqid, но другим телом отклоняется: тела сравниваются по SHA-256
+ * канонического JSON (свойства и ключи map по алфавиту), а не по {@code hashCode()}, который 32-битный
+ * и зависит от набора полей DTO.
+ * <p>
+ * Для {@code app.service.backend=STORAGE} таблица не используется: откат транзакции снял бы ключ, но не отменил
+ * запись в память, и повтор создал бы пользователя второй раз. Там ключ занимается в памяти процесса:
+ * параллельный повтор ждёт первое создание и получает его ответ, а при ошибке создания ключ освобождается.
+ * Ответы живут только в кэше и после рестарта не повторяются.
+ */
+@Slf4j
+@Component
+public class RequestDeduplicator {
+    public static final int MAX_REQUEST_ID_LENGTH = 128;
+
+    private final UserDataFacade userDataFacade;
+    private final IdempotentRequestRepository idempotentRequestRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter canonicalWriter;
+    private final Cache<String, IdempotentRequest> completedRequests;
+    private final Map<String, CompletableFuture<IdempotentRequest>> inFlightRequests = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final boolean transactional;
+    private final Duration ttl;
+    private final int purgeBatchSize;
+    private final Counter cacheReplays;
+    private final Counter databaseReplays;
+
+    public RequestDeduplicator(UserDataFacade userDataFacade,
+                               IdempotentRequestRepository idempotentRequestRepository,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.service.backend:TEMPLATE}") ServiceBackend serviceBackend,
+                               @Value("${app.idempotency.enabled:true}") boolean enabled,
+                               @Value("${app.idempotency.ttl:PT24H}") Duration ttl,
+                               @Value("${app.idempotency.cache-max-size:100000}") long cacheMaxSize,
+                               @Value("${app.idempotency.purge-batch-size:1000}") int purgeBatchSize) {
+        this.userDataFacade = userDataFacade;
+        this.idempotentRequestRepository = idempotentRequestRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.canonicalWriter = objectMapper.copy()
+                .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+                .writer();
+        this.completedRequests = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.enabled = enabled;
+        this.transactional = serviceBackend.isTransactional();
+        this.ttl = ttl;
+        this.purgeBatchSize = purgeBatchSize;
+        this.cacheReplays = replayCounter(meterRegistry, "cache");
+        this.databaseReplays = replayCounter(meterRegistry, "database");
+    }
+
+    /**
+     * Ответ на повтор из кэша в памяти, без транзакции и без места в пуле соединений.
+     */
+    public Optional<UserBookResponse> findCompleted(String requestId, UserBookRequest request) {
+        if (!isIdempotent(requestId)) {
+            return Optional.empty();
+        }
+        IdempotentRequest completed = completedRequests.getIfPresent(requestId);
+        if (completed == null) {
+            return Optional.empty();
+        }
+        cacheReplays.increment();
+        log.info("Replayed create request {} from cache: user {}", requestId, completed.userId());
+        return Optional.of(toResponse(checkSameRequest(completed, requestHash(request))));
+    }
+
+    public UserBookResponse createUserWithBooks(String requestId, UserBookRequest request) {
+        if (!isIdempotent(requestId)) {
+            return userDataFacade.createUserWithBooks(request);
+        }
+        String requestHash = requestHash(request);
+        if (!transactional) {
+            return toResponse(createInMemory(requestId, requestHash, request));
+        }
+        IdempotentRequest completed = transactionTemplate.execute(status -> {
+            if (idempotentRequestRepository.claim(requestId, requestHash)) {
+                UserBookResponse response = userDataFacade.createUserWithBooks(request);
+                idempotentRequestRepository.complete(requestId, response.getUserId(), response.getBooksIdList());
+                return new IdempotentRequest(requestId, requestHash, response.getUserId(), response.getBooksIdList());
+            }
+            IdempotentRequest stored = idempotentRequestRepository.find(requestId)
+                    .orElseThrow(() -> new IllegalStateException("Request id " + requestId + " is claimed but has no result"));
+            databaseReplays.increment();
+            log.info("Replayed create request {} from database: user {}", requestId, stored.userId());
+            return checkSameRequest(stored, requestHash);
+        });
+        completedRequests.put(requestId, completed);
+        return toResponse(completed);
+    }
+
+    private IdempotentRequest createInMemory(String requestId, String requestHash, UserBookRequest request) {
+        while (true) {
+            IdempotentRequest completed = completedRequests.getIfPresent(requestId);
+            if (completed != null) {
+                cacheReplays.increment();
+                log.info("Replayed create request {} from cache: user {}", requestId, completed.userId());
+                return checkSameRequest(completed, requestHash);
+            }
+            CompletableFuture<IdempotentRequest> claim = new CompletableFuture<>();
+            CompletableFuture<IdempotentRequest> inFlight = inFlightRequests.putIfAbsent(requestId, claim);
+            if (inFlight == null) {
+                return create(requestId, requestHash, request, claim);
+            }
+            try {
+                completed = inFlight.join();
+            } catch (CompletionException e) {
+                continue;
+            }
+            cacheReplays.increment();
+            log.info("Replayed create request {} after waiting: user {}", requestId, completed.userId());
+            return checkSameRequest(completed, requestHash);
+        }
+    }
+
+    /**
+     * Ответ кладётся в кэш раньше, чем снимается ключ, поэтому следующий повтор видит одно из двух.
+     */
+    private IdempotentRequest create(String requestId, String requestHash, UserBookRequest request,
+                                     CompletableFuture<IdempotentRequest> claim) {
+        try {
+            UserBookResponse response = userDataFacade.createUserWithBooks(request);
+            IdempotentRequest completed = new IdempotentRequest(requestId, requestHash, response.getUserId(),
+                    response.getBooksIdList());
+            completedRequests.put(requestId, completed);
+            claim.complete(completed);
+            return completed;
+        } catch (RuntimeException e) {
+            claim.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(requestId, claim);
+        }
+    }
+
+    /**
+     * Удаляет из таблицы ответы старше {@code app.idempotency.ttl} пачками по {@code purge-batch-size}.
+     */
+    @Scheduled(initialDelayString = "${app.idempotency.purge-interval:PT10M}",
+            fixedDelayString = "${app.idempotency.purge-interval:PT10M}")
+    public void purgeExpired() {
+        if (!enabled || !transactional) {
+            return;
+        }
+        Instant createdBefore = Instant.now().minus(ttl);
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = idempotentRequestRepository.deleteCreatedBefore(createdBefore, purgeBatchSize);
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+        if (purged > 0) {
+            log.info("Purged expired request ids: {}", purged);
+        }
+    }
+
+    private boolean isIdempotent(String requestId) {
+        if (!enabled || requestId == null || requestId.isBlank()) {
+            return false;
+        }
+        if (requestId.length() > MAX_REQUEST_ID_LENGTH) {
+            throw new IllegalArgumentException("Request id is longer than " + MAX_REQUEST_ID_LENGTH + " characters");
+        }
+        return true;
+    }
+
+    String requestHash(UserBookRequest request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalWriter.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot hash create request", e);
+        }
+    }
+
+    private static IdempotentRequest checkSameRequest(IdempotentRequest completed, String requestHash) {
+        if (!completed.requestHash().equals(requestHash)) {
+            throw new IllegalArgumentException("Request id " + completed.requestId() + " was already used for a different request");
+        }
+        return completed;
+    }
+
+    private static UserBookResponse toResponse(IdempotentRequest completed) {
+        return UserBookResponse.builder()
+                .userId(completed.userId())
+                .booksIdList(completed.bookIds())
+                .build();
+    }
+
+    private static Counter replayCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("app.idempotency.replays")
+                .description("Create requests answered with the stored response of an earlier request with the same rqid")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
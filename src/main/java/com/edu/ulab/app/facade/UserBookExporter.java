@@ -0,0 +1,206 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.repository.UserBookCursorRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Полная выгрузка пользователей с книгами прямо в поток ответа.
+ * <p>
+ * Строки курсора {@link UserBookCursorRepository} сразу пишутся в выходной поток, в памяти держится только
+ * текущая строка, поэтому расход heap не зависит от размера таблиц.
+ */
+@Slf4j
+@Component
+public class UserBookExporter {
+    private static final String CSV_HEADER = "person_id,full_name,title,age,book_id,book_title,author,page_count";
+
+    private final UserBookCursorRepository userBookCursorRepository;
+    private final ObjectMapper objectMapper;
+
+    public UserBookExporter(UserBookCursorRepository userBookCursorRepository,
+                            ObjectMapper objectMapper) {
+        this.userBookCursorRepository = userBookCursorRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public void export(ExportFormat format, OutputStream outputStream) throws IOException {
+        long start = System.nanoTime();
+        ExportRowHandler rowHandler = switch (format) {
+            case JSONL -> new JsonLinesRowHandler(objectMapper.getFactory().createGenerator(outputStream));
+            case CSV -> new CsvRowHandler(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+        };
+        try {
+            userBookCursorRepository.streamAllWithBooks(rowHandler);
+            rowHandler.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("Export {} finished: {} rows in {} ms", format, rowHandler.rows, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private abstract static class ExportRowHandler implements RowCallbackHandler {
+        long rows;
+        long currentPersonId;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            rows++;
+            try {
+                long personId = rs.getLong("person_id");
+                if (personId != currentPersonId) {
+                    if (currentPersonId != 0) {
+                        endPerson();
+                    }
+                    currentPersonId = personId;
+                    startPerson(rs);
+                }
+                long bookId = rs.getLong("book_id");
+                if (!rs.wasNull()) {
+                    writeBook(rs, bookId);
+                } else {
+                    writeNoBook();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            if (currentPersonId != 0) {
+                endPerson();
+            }
+            flush();
+        }
+
+        abstract void startPerson(ResultSet rs) throws SQLException, IOException;
+
+        abstract void writeBook(ResultSet rs, long bookId) throws SQLException, IOException;
+
+        abstract void writeNoBook() throws IOException;
+
+        abstract void endPerson() throws IOException;
+
+        abstract void flush() throws IOException;
+    }
+
+    private static final class JsonLinesRowHandler extends ExportRowHandler {
+        private final JsonGenerator generator;
+
+        JsonLinesRowHandler(JsonGenerator generator) {
+            this.generator = generator;
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void startPerson(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("userId", currentPersonId);
+            generator.writeStringField("fullName", rs.getString("full_name"));
+            generator.writeStringField("title", rs.getString("person_title"));
+            generator.writeNumberField("age", rs.getInt("age"));
+            generator.writeArrayFieldStart("books");
+        }
+
+        @Override
+        void writeBook(ResultSet rs, long bookId) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", bookId);
+            generator.writeStringField("title", rs.getString("book_title"));
+            generator.writeStringField("author", rs.getString("author"));
+            generator.writeNumberField("pageCount", rs.getLong("page_count"));
+            generator.writeEndObject();
+        }
+
+        @Override
+        void writeNoBook() {
+        }
+
+        @Override
+        void endPerson() throws IOException {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvRowHandler extends ExportRowHandler {
+        private final Writer writer;
+        private String personColumns;
+
+        CsvRowHandler(Writer writer) {
+            this.writer = writer;
+            try {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        void startPerson(ResultSet rs) throws SQLException {
+            personColumns = currentPersonId + ","
+                    + escape(rs.getString("full_name")) + ","
+                    + escape(rs.getString("person_title")) + ","
+                    + rs.getInt("age");
+        }
+
+        @Override
+        void writeBook(ResultSet rs, long bookId) throws SQLException, IOException {
+            writer.write(personColumns);
+            writer.write(',');
+            writer.write(Long.toString(bookId));
+            writer.write(',');
+            writer.write(escape(rs.getString("book_title")));
+            writer.write(',');
+            writer.write(escape(rs.getString("author")));
+            writer.write(',');
+            writer.write(Long.toString(rs.getLong("page_count")));
+            writer.write('\n');
+        }
+
+        @Override
+        void writeNoBook() throws IOException {
+            writer.write(personColumns);
+            writer.write(",,,,\n");
+        }
+
+        @Override
+        void endPerson() {
+        }
+
+        @Override
+        void flush() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
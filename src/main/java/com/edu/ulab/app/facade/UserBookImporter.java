@@ -0,0 +1,123 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.ServiceBackend;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.ImportSummaryResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковый импорт пользователей с книгами из NDJSON: одна строка - один {@link UserBookRequest}.
+ * <p>
+ * Тело запроса читается построчно, в памяти держится только текущая пачка из {@code chunkSize} записей.
+ * Пачка коммитится через {@link UserDataFacade#createUsersWithBooks} в одной транзакции, и пока она пишется,
+ * следующие строки не читаются - если БД не успевает, чтение тормозит и клиент упирается в TCP окно.
+ * Если пачка не прошла целиком, её записи повторяются по одной, чтобы найти и отчитать только сбойные строки.
+ * Для нетранзакционного бэкенда ({@link ServiceBackend#isTransactional()}) сбойную пачку не откатить, и повтор
+ * создал бы записанных пользователей второй раз, поэтому там записи сразу пишутся по одной.
+ */
+@Slf4j
+@Component
+public class UserBookImporter {
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final UserDataFacade userDataFacade;
+    private final ObjectReader requestReader;
+    private final int chunkSize;
+    private final boolean chunkRollback;
+
+    public UserBookImporter(UserDataFacade userDataFacade,
+                            ObjectMapper objectMapper,
+                            @Value("${app.import.chunk-size:500}") int chunkSize,
+                            @Value("${app.service.backend:TEMPLATE}") ServiceBackend serviceBackend) {
+        this.userDataFacade = userDataFacade;
+        this.requestReader = objectMapper.readerFor(UserBookRequest.class);
+        this.chunkSize = chunkSize;
+        this.chunkRollback = serviceBackend.isTransactional();
+    }
+
+    public ImportSummaryResponse importUsersWithBooks(InputStream ndjson) throws IOException {
+        ImportSummaryResponse summary = new ImportSummaryResponse();
+        List<UserBookRequest> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            summary.setReceived(summary.getReceived() + 1);
+            try {
+                chunk.add(requestReader.readValue(line));
+                chunkLines.add(lineNumber);
+            } catch (JsonProcessingException e) {
+                fail(summary, lineNumber, e.getOriginalMessage());
+            }
+            if (chunk.size() >= chunkSize) {
+                commit(chunk, chunkLines, summary);
+            }
+        }
+        commit(chunk, chunkLines, summary);
+
+        log.info("Import finished: received {}, users created {}, books created {}, failed {}",
+                summary.getReceived(), summary.getUsersCreated(), summary.getBooksCreated(), summary.getFailed());
+        return summary;
+    }
+
+    private void commit(List<UserBookRequest> chunk, List<Long> chunkLines, ImportSummaryResponse summary) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        if (!chunkRollback) {
+            commitOneByOne(chunk, chunkLines, summary);
+        } else {
+            try {
+                userDataFacade.createUsersWithBooks(chunk).forEach(response -> count(summary, response));
+            } catch (RuntimeException e) {
+                log.warn("Import chunk of {} records failed, retrying one by one: {}", chunk.size(), ExceptionUtils.getMessage(e));
+                commitOneByOne(chunk, chunkLines, summary);
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private void commitOneByOne(List<UserBookRequest> chunk, List<Long> chunkLines, ImportSummaryResponse summary) {
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                count(summary, userDataFacade.createUserWithBooks(chunk.get(i)));
+            } catch (RuntimeException recordException) {
+                fail(summary, chunkLines.get(i), ExceptionUtils.getMessage(recordException));
+            }
+        }
+    }
+
+    private static void count(ImportSummaryResponse summary, UserBookResponse response) {
+        summary.setUsersCreated(summary.getUsersCreated() + 1);
+        summary.setBooksCreated(summary.getBooksCreated() + response.getBooksIdList().size());
+    }
+
+    private static void fail(ImportSummaryResponse summary, long line, String errorMessage) {
+        summary.setFailed(summary.getFailed() + 1);
+        if (summary.getFailures().size() < MAX_REPORTED_FAILURES) {
+            summary.getFailures().add(new ImportSummaryResponse.ImportFailure(line, errorMessage));
+        }
+    }
+}
@@ -1,57 +1,120 @@
 package com.edu.ulab.app.facade;
 
+import com.edu.ulab.app.config.CacheConfig;
+import com.edu.ulab.app.config.ServiceBackendConfig;
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookDto;
+import com.edu.ulab.app.dto.UserBookStatsDto;
 import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.mapper.UserMapper;
-
-import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
-import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.edu.ulab.app.repository.BookPurgeQueueRepository;
+import com.edu.ulab.app.search.BookSearchIndex;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.web.request.BookRequest;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.BookPageResponse;
+import com.edu.ulab.app.web.response.BookResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBookStatsResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+
+import static com.edu.ulab.app.logging.LogMarkers.PAYLOAD;
 
+/**
+ * Транзакции открываются через {@link ServiceBackendConfig#FACADE_TRANSACTIONS}: для in-memory бэкенда их нет.
+ */
 @Slf4j
 @Component
 public class UserDataFacade {
-    private final UserServiceImplTemplate userService;
-    private final BookServiceImplTemplate bookService;
+    private static final int MAX_BOOKS_PAGE_SIZE = 1000;
+
+    private final UserService userService;
+    private final BookService bookService;
     private final UserMapper userMapper;
     private final BookMapper bookMapper;
+    private final BookPurgeQueueRepository bookPurgeQueueRepository;
+    private final Cache userBooksCache;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final BookSearchIndex bookSearchIndex;
+    private final TransactionOperations transactions;
+    private final TransactionOperations readOnlyTransactions;
+    private final int bookPurgeChunkSize;
 
-    public UserDataFacade(UserServiceImplTemplate userService,
-                          BookServiceImplTemplate bookService,
+    public UserDataFacade(@Qualifier(ServiceBackendConfig.USER_SERVICE_BACKEND) UserService userService,
+                          @Qualifier(ServiceBackendConfig.BOOK_SERVICE_BACKEND) BookService bookService,
                           UserMapper userMapper,
-                          BookMapper bookMapper) {
+                          BookMapper bookMapper,
+                          BookPurgeQueueRepository bookPurgeQueueRepository,
+                          CacheManager cacheManager,
+                          ReadYourWritesTracker readYourWritesTracker,
+                          BookSearchIndex bookSearchIndex,
+                          @Qualifier(ServiceBackendConfig.FACADE_TRANSACTIONS) TransactionOperations transactions,
+                          @Qualifier(ServiceBackendConfig.FACADE_READ_ONLY_TRANSACTIONS) TransactionOperations readOnlyTransactions,
+                          @Value("${app.book-purge.chunk-size:1000}") int bookPurgeChunkSize) {
         this.userService = userService;
         this.bookService = bookService;
         this.userMapper = userMapper;
         this.bookMapper = bookMapper;
+        this.bookPurgeQueueRepository = bookPurgeQueueRepository;
+        this.userBooksCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.USER_BOOKS_CACHE));
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.bookSearchIndex = bookSearchIndex;
+        this.transactions = transactions;
+        this.readOnlyTransactions = readOnlyTransactions;
+        this.bookPurgeChunkSize = bookPurgeChunkSize;
     }
 
     public UserBookResponse createUserWithBooks(UserBookRequest userBookRequest) {
-        log.info("Got user book create request: {}", userBookRequest);
-        UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
-        log.info("Mapped user request: {}", userDto);
+        return transactions.execute(status -> createUserWithBooksInTransaction(userBookRequest));
+    }
+
+    private UserBookResponse createUserWithBooksInTransaction(UserBookRequest userBookRequest) {
+        log.info(PAYLOAD, "Got user book create request: {}", userBookRequest);
+        UserDto userDto = userMapper.userRequestToUserDto(Objects.requireNonNull(
+                userBookRequest.getUserRequest(), "User request must be set"));
+        userDto.setId(null);
+        log.info(PAYLOAD, "Mapped user request: {}", userDto);
 
         UserDto createdUser = userService.createUser(userDto);
-        log.info("Created user: {}", createdUser);
+        log.info(PAYLOAD, "Created user: {}", createdUser);
 
-        List<Long> bookIdList = userBookRequest.getBookRequests()
+        List<BookDto> bookDtoList = Objects.requireNonNullElse(userBookRequest.getBookRequests(), List.<BookRequest>of())
                 .stream()
                 .filter(Objects::nonNull)
                 .map(bookMapper::bookRequestToBookDto)
+                .peek(bookDto -> bookDto.setId(null))
                 .peek(bookDto -> bookDto.setUserId(createdUser.getId()))
-                .peek(mappedBookDto -> log.info("mapped book: {}", mappedBookDto))
-                .map(bookService::createBook)
-                .peek(createdBook -> log.info("Created book: {}", createdBook))
+                .toList();
+        log.info(PAYLOAD, "Mapped books: {}", bookDtoList);
+
+        List<BookDto> createdBooks = bookService.createBooks(bookDtoList);
+        log.info(PAYLOAD, "Created books: {}", createdBooks);
+        List<Long> bookIdList = createdBooks
+                .stream()
                 .map(BookDto::getId)
                 .toList();
-        log.info("Collected book ids: {}", bookIdList);
+        log.info("Created user {} with {} books", createdUser.getId(), bookIdList.size());
+        readYourWritesTracker.recordWrite(createdUser.getId());
+        bookSearchIndex.indexAfterCommit(createdBooks);
 
         return UserBookResponse.builder()
                 .userId(createdUser.getId())
@@ -59,14 +122,238 @@ public class UserDataFacade {
                 .build();
     }
 
+    /**
+     * Создаёт пачку пользователей с книгами в одной транзакции, книги всех пользователей уходят одним batch.
+     */
+    public List<UserBookResponse> createUsersWithBooks(List<UserBookRequest> userBookRequests) {
+        return transactions.execute(status -> createUsersWithBooksInTransaction(userBookRequests));
+    }
+
+    private List<UserBookResponse> createUsersWithBooksInTransaction(List<UserBookRequest> userBookRequests) {
+        log.info("Got user book create requests: {}", userBookRequests.size());
+        List<UserDto> userDtoList = userBookRequests.stream()
+                .map(userBookRequest -> userMapper.userRequestToUserDto(Objects.requireNonNull(
+                        userBookRequest.getUserRequest(), "User request must be set")))
+                .peek(userDto -> userDto.setId(null))
+                .toList();
+        List<UserDto> createdUsers = userService.createUsers(userDtoList);
+
+        Map<Long, List<Long>> bookIdsByUserId = new LinkedHashMap<>();
+        List<BookDto> bookDtoList = new ArrayList<>();
+        for (int i = 0; i < createdUsers.size(); i++) {
+            Long userId = createdUsers.get(i).getId();
+            bookIdsByUserId.put(userId, new ArrayList<>());
+
+            List<BookRequest> bookRequests = userBookRequests.get(i).getBookRequests();
+            if (bookRequests != null) {
+                bookRequests.stream()
+                        .filter(Objects::nonNull)
+                        .map(bookMapper::bookRequestToBookDto)
+                        .peek(bookDto -> bookDto.setId(null))
+                        .peek(bookDto -> bookDto.setUserId(userId))
+                        .forEach(bookDtoList::add);
+            }
+        }
+
+        List<BookDto> createdBooks = bookService.createBooks(bookDtoList);
+        createdBooks.forEach(createdBook -> bookIdsByUserId.get(createdBook.getUserId()).add(createdBook.getId()));
+        log.info("Created users: {}, books: {}", bookIdsByUserId.size(), bookDtoList.size());
+        readYourWritesTracker.recordWrites(List.copyOf(bookIdsByUserId.keySet()));
+        bookSearchIndex.indexAfterCommit(createdBooks);
+
+        return bookIdsByUserId.entrySet()
+                .stream()
+                .map(entry -> UserBookResponse.builder()
+                        .userId(entry.getKey())
+                        .booksIdList(entry.getValue())
+                        .build())
+                .toList();
+    }
+
     public UserBookResponse updateUserWithBooks(UserBookRequest userBookRequest) {
-        return null;
+        return updateUsersWithBooks(List.of(userBookRequest)).get(0);
+    }
+
+    /**
+     * Обновляет пачку пользователей в одной транзакции. Если у запроса задан список книг, книги пользователя
+     * приводятся к нему по разнице с сохранёнными (см. {@link BookSetDiff}): запись идёт только для изменённых,
+     * новых и удалённых книг, все upsert одним batch и все delete одним batch. Если список не задан - книги
+     * не меняются и не читаются, а в ответе нет {@code booksIdList}. Записи кэша пользователей сбрасываются
+     * после коммита.
+     */
+    public List<UserBookResponse> updateUsersWithBooks(List<UserBookRequest> userBookRequests) {
+        return transactions.execute(status -> updateUsersWithBooksInTransaction(userBookRequests));
+    }
+
+    private List<UserBookResponse> updateUsersWithBooksInTransaction(List<UserBookRequest> userBookRequests) {
+        log.info("Got user book update requests: {}", userBookRequests.size());
+        List<UserDto> userDtoList = new ArrayList<>(userBookRequests.size());
+        Map<Long, List<BookDto>> requestedBooksByUserId = new LinkedHashMap<>();
+        for (UserBookRequest userBookRequest : userBookRequests) {
+            UserDto userDto = userMapper.userRequestToUserDto(Objects.requireNonNull(
+                    userBookRequest.getUserRequest(), "User request must be set"));
+            Long userId = Objects.requireNonNull(userDto.getId(), "User id must be set for update");
+            userDtoList.add(userDto);
+
+            if (userBookRequest.getBookRequests() != null) {
+                List<BookDto> requestedBooks = userBookRequest.getBookRequests()
+                        .stream()
+                        .filter(Objects::nonNull)
+                        .map(bookMapper::bookRequestToBookDto)
+                        .peek(bookDto -> bookDto.setUserId(userId))
+                        .toList();
+                if (requestedBooksByUserId.put(userId, requestedBooks) != null) {
+                    throw new IllegalArgumentException("Books of user " + userId + " are listed twice");
+                }
+            }
+        }
+
+        userService.updateUsers(userDtoList);
+
+        Map<Long, List<BookDto>> storedBooksByUserId = new HashMap<>();
+        if (!requestedBooksByUserId.isEmpty()) {
+            bookService.getBooksByUserIds(List.copyOf(requestedBooksByUserId.keySet()))
+                    .forEach(book -> storedBooksByUserId.computeIfAbsent(book.getUserId(), key -> new ArrayList<>()).add(book));
+        }
+
+        Map<Long, BookSetDiff> diffByUserId = new HashMap<>();
+        List<BookDto> upserts = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        requestedBooksByUserId.forEach((userId, requestedBooks) -> {
+            BookSetDiff diff = BookSetDiff.compute(userId, storedBooksByUserId.getOrDefault(userId, List.of()), requestedBooks);
+            diffByUserId.put(userId, diff);
+            upserts.addAll(diff.upserts());
+            deletedIds.addAll(diff.deletedIds());
+        });
+
+        bookService.deleteBooksByIds(deletedIds);
+        List<BookDto> savedBooks = bookService.upsertBooks(upserts);
+        for (int i = 0; i < upserts.size(); i++) {
+            upserts.get(i).setId(savedBooks.get(i).getId());
+        }
+        log.info("Updated users: {}, upserted books: {}, deleted books: {}",
+                userDtoList.size(), upserts.size(), deletedIds.size());
+        List<Long> userIds = userDtoList.stream().map(UserDto::getId).distinct().toList();
+        readYourWritesTracker.recordWrites(userIds);
+        bookSearchIndex.removeAfterCommit(deletedIds);
+        bookSearchIndex.indexAfterCommit(upserts);
+        evictAfterCommit(userIds);
+
+        return userDtoList.stream()
+                .map(userDto -> {
+                    List<BookDto> books = requestedBooksByUserId.get(userDto.getId());
+                    BookSetDiff diff = diffByUserId.get(userDto.getId());
+                    return UserBookResponse.builder()
+                            .userId(userDto.getId())
+                            .booksIdList(books == null ? null : books.stream().map(BookDto::getId).toList())
+                            .bookChanges(diff == null ? null : diff.changes())
+                            .build();
+                })
+                .toList();
     }
 
+    /**
+     * Чтение идёт в read-only транзакции и при включённой маршрутизации уходит на реплику,
+     * кроме пользователей, изменённых в окне read-your-writes.
+     */
+    @Cacheable(cacheNames = CacheConfig.USER_BOOKS_CACHE, key = "#userId")
     public UserBookResponse getUserWithBooks(Long userId) {
-        return null;
+        UserBookDto userWithBooks = readOnlyTransactions.execute(status ->
+                readYourWritesTracker.read(userId, () -> userService.getUserWithBooks(userId)));
+        UserDto user = userWithBooks.getUser();
+        log.info(PAYLOAD, "Got user: {}", user);
+
+        List<Long> bookIdList = userWithBooks.getBooks()
+                .stream()
+                .map(BookDto::getId)
+                .toList();
+        log.info(PAYLOAD, "Collected book ids: {}", bookIdList);
+
+        return UserBookResponse.builder()
+                .userId(user.getId())
+                .booksIdList(bookIdList)
+                .version(user.getVersion())
+                .build();
+    }
+
+    /**
+     * Версия пользователя для проверки {@code If-None-Match}: одна строка пользователя, книги не читаются.
+     */
+    public long getUserVersion(Long userId) {
+        return readOnlyTransactions.execute(status ->
+                readYourWritesTracker.read(userId, () -> userService.getUserVersion(userId)));
+    }
+
+    public BookPageResponse getUserBooksPage(Long userId, Long afterId, int requestedLimit) {
+        int limit = Math.min(Math.max(requestedLimit, 1), MAX_BOOKS_PAGE_SIZE);
+        List<BookResponse> books = readOnlyTransactions.execute(status -> readYourWritesTracker.read(userId,
+                        () -> bookService.getBooksPageByUserId(userId, afterId == null ? 0 : afterId, limit)))
+                .stream()
+                .map(bookMapper::bookDtoToBookResponse)
+                .toList();
+        log.info("Got books page: userId {}, afterId {}, size {}", userId, afterId, books.size());
+
+        return BookPageResponse.builder()
+                .userId(userId)
+                .books(books)
+                .nextAfterId(books.size() < limit ? null : books.get(books.size() - 1).getId())
+                .build();
+    }
+
+    /**
+     * Статистика из счётчиков в строке пользователя, объём книг на чтение не влияет.
+     */
+    public UserBookStatsResponse getUserBookStats(Long userId) {
+        UserBookStatsDto stats = readOnlyTransactions.execute(status ->
+                readYourWritesTracker.read(userId, () -> userService.getUserBookStats(userId)));
+        return UserBookStatsResponse.builder()
+                .userId(stats.getUserId())
+                .bookCount(stats.getBookCount())
+                .pageTotal(stats.getPageTotal())
+                .build();
     }
 
     public void deleteUserWithBooks(Long userId) {
+        deleteUsersWithBooks(List.of(userId));
+    }
+
+    /**
+     * Удаляет пользователей и set-based удаляет их книги, не больше {@code app.book-purge.chunk-size} на пользователя.
+     * Книги тех, у кого их больше, дочищает {@link BookPurgeJob} отдельными короткими транзакциями.
+     */
+    public void deleteUsersWithBooks(List<Long> userIds) {
+        transactions.executeWithoutResult(status -> deleteUsersWithBooksInTransaction(userIds));
+    }
+
+    private void deleteUsersWithBooksInTransaction(List<Long> userIds) {
+        List<Long> distinctUserIds = userIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Set<Long> remaining = bookService.deleteBookChunksByUserIds(distinctUserIds, bookPurgeChunkSize);
+        userService.deleteUsersByIds(distinctUserIds);
+        bookPurgeQueueRepository.enqueue(remaining);
+        log.info("Deleted users: {}, deferred book purge: {}", distinctUserIds.size(), remaining.size());
+        readYourWritesTracker.recordWrites(distinctUserIds);
+        bookSearchIndex.removeUsersAfterCommit(distinctUserIds);
+
+        evictAfterCommit(distinctUserIds);
+    }
+
+    /**
+     * Сброс до коммита не работает: параллельный читатель успеет положить в кэш ещё старую строку.
+     * После коммита такое возможно только для чтения, начатого до коммита, и живёт не дольше {@code expire-after-write}.
+     */
+    private void evictAfterCommit(List<Long> userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            userIds.forEach(userBooksCache::evict);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                userIds.forEach(userBooksCache::evict);
+            }
+        });
     }
 }
@@ -0,0 +1,309 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.ServiceOverloadedException;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Групповой коммит обновлений пользователей.
+ * <p>
+ * Обновления раскладываются по {@code app.update-coalescing.committers} очередям по хэшу userId, у каждой очереди
+ * свой поток-коммиттер и своё соединение, а обновления одного пользователя всегда попадают в одну очередь и
+ * применяются по порядку. Коммиттер забирает всё, что пришло за окно {@code app.update-coalescing.window} после
+ * первого обновления (но не больше {@code max-batch-size}), и применяет пачку через
+ * {@link UserDataFacade#updateUsersWithBooks} одной транзакцией и одним JDBC batch.
+ * Обновления одного userId внутри пачки сливаются в порядке поступления: поля пользователя берутся из последнего,
+ * список книг - из последнего запроса, где он задан. Future каждого вызывающего завершается после коммита
+ * с MDC его запроса.
+ * <p>
+ * Пачка не повторяется целиком: при конфликте версии пользователя он повторяется отдельно через
+ * {@link OptimisticLockRetrier}, а остальные применяются пачкой снова. При любой другой ошибке пользователи пачки
+ * применяются по одному, чтобы ошибка одного не задевала остальных.
+ */
+@Slf4j
+@Component
+public class UserUpdateCoalescer {
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final String REQUEST_ID = "requestId";
+
+    private final UserDataFacade userDataFacade;
+    private final OptimisticLockRetrier optimisticLockRetrier;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final List<BlockingQueue<PendingUpdate>> queues;
+    private final List<Thread> committers;
+    private volatile boolean running;
+
+    public UserUpdateCoalescer(UserDataFacade userDataFacade,
+                               OptimisticLockRetrier optimisticLockRetrier,
+                               @Value("${app.update-coalescing.enabled:false}") boolean enabled,
+                               @Value("${app.update-coalescing.committers:1}") int committerCount,
+                               @Value("${app.update-coalescing.window:5ms}") Duration window,
+                               @Value("${app.update-coalescing.max-batch-size:100}") int maxBatchSize,
+                               @Value("${app.update-coalescing.queue-capacity:1000}") int queueCapacity) {
+        this.userDataFacade = userDataFacade;
+        this.optimisticLockRetrier = optimisticLockRetrier;
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.queues = new ArrayList<>(committerCount);
+        this.committers = new ArrayList<>(committerCount);
+        for (int i = 0; i < committerCount; i++) {
+            BlockingQueue<PendingUpdate> queue = new ArrayBlockingQueue<>(queueCapacity);
+            Thread committer = new Thread(() -> commitLoop(queue), "user-update-committer-" + i);
+            committer.setDaemon(true);
+            queues.add(queue);
+            committers.add(committer);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            running = true;
+            committers.forEach(Thread::start);
+        }
+    }
+
+    /**
+     * Ставит обновление в очередь его пользователя. Если очередь заполнена, сразу бросает {@link ServiceOverloadedException}.
+     */
+    public CompletableFuture<UserBookResponse> submit(UserBookRequest userBookRequest) {
+        if (userBookRequest.getUserRequest() == null || userBookRequest.getUserRequest().getId() == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("User id must be set for update"));
+        }
+        Long userId = userBookRequest.getUserRequest().getId();
+        PendingUpdate update = new PendingUpdate(userBookRequest, new CompletableFuture<>(), MDC.getCopyOfContextMap());
+        if (!running || !queues.get(Math.floorMod(userId.hashCode(), queues.size())).offer(update)) {
+            throw new ServiceOverloadedException("Too many concurrent updates, retry later");
+        }
+        return update.result();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (enabled) {
+            running = false;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            for (Thread committer : committers) {
+                committer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        }
+    }
+
+    private void commitLoop(BlockingQueue<PendingUpdate> queue) {
+        List<PendingUpdate> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingUpdate first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingUpdate next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(update -> update.fail(e));
+                return;
+            } catch (RuntimeException e) {
+                log.error("Coalesced update failed", e);
+                batch.forEach(update -> update.fail(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingUpdate> batch) {
+        Map<Long, MergedUpdate> updatesByUserId = new LinkedHashMap<>();
+        for (PendingUpdate update : batch) {
+            updatesByUserId.computeIfAbsent(update.request().getUserRequest().getId(), MergedUpdate::new)
+                    .add(update);
+        }
+        List<MergedUpdate> updates = new ArrayList<>(updatesByUserId.values());
+        log.info("Committing coalesced updates: requests {}, users {}, requestIds {}", batch.size(), updates.size(),
+                batch.stream().map(PendingUpdate::requestId).filter(Objects::nonNull).toList());
+
+        while (updates.size() > 1) {
+            try {
+                apply(updates);
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                MergedUpdate conflicting = findConflicting(updates, e);
+                if (conflicting == null) {
+                    log.warn("Coalesced update of {} users conflicted, applying one by one: {}", updates.size(), e.getMessage());
+                    updates.forEach(this::applySeparately);
+                    return;
+                }
+                log.info("Coalesced update conflicted on user {}, retrying it separately", conflicting.userId());
+                updates.remove(conflicting);
+                applySeparately(conflicting);
+            } catch (RuntimeException e) {
+                log.warn("Coalesced update of {} users failed, applying one by one: {}", updates.size(), e.getMessage());
+                updates.forEach(this::applySeparately);
+                return;
+            }
+        }
+        updates.forEach(this::applySeparately);
+    }
+
+    private void apply(List<MergedUpdate> updates) {
+        List<UserBookRequest> requests = updates.stream().map(MergedUpdate::request).toList();
+        List<UserBookResponse> responses = userDataFacade.updateUsersWithBooks(requests);
+        for (int i = 0; i < updates.size(); i++) {
+            updates.get(i).complete(responses.get(i));
+        }
+    }
+
+    /**
+     * Применяет обновление одного пользователя с повтором при конфликте версии, логи идут с MDC его запроса.
+     */
+    private void applySeparately(MergedUpdate update) {
+        Map<String, String> context = update.context();
+        if (context != null) {
+            MDC.setContextMap(context);
+        }
+        try {
+            UserBookResponse response = optimisticLockRetrier.execute(
+                    () -> userDataFacade.updateUsersWithBooks(List.of(update.request())).get(0));
+            update.complete(response);
+        } catch (RuntimeException e) {
+            update.fail(e);
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    /**
+     * Пользователь пачки, на версии которого случился конфликт, если исключение его называет.
+     */
+    private static MergedUpdate findConflicting(List<MergedUpdate> updates, OptimisticLockingFailureException e) {
+        if (!(e instanceof ObjectOptimisticLockingFailureException conflict)
+                || !Person.class.equals(conflict.getPersistentClass())) {
+            return null;
+        }
+        return updates.stream()
+                .filter(update -> update.userId().equals(conflict.getIdentifier()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private record PendingUpdate(UserBookRequest request,
+                                 CompletableFuture<UserBookResponse> result,
+                                 Map<String, String> context) {
+
+        String requestId() {
+            return context == null ? null : context.get(REQUEST_ID);
+        }
+
+        void complete(UserBookResponse response) {
+            withContext(() -> result.complete(response));
+        }
+
+        void fail(Throwable error) {
+            withContext(() -> result.completeExceptionally(error));
+        }
+
+        /**
+         * Future завершается в потоке коммиттера, и продолжения вызывающего (например, PAYLOAD-лог ответа)
+         * выполняются здесь же, поэтому на время завершения ставится MDC запроса.
+         */
+        private void withContext(Runnable completion) {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            if (context != null) {
+                MDC.setContextMap(context);
+            } else {
+                MDC.clear();
+            }
+            try {
+                completion.run();
+            } finally {
+                if (previous != null) {
+                    MDC.setContextMap(previous);
+                } else {
+                    MDC.clear();
+                }
+            }
+        }
+    }
+
+    private static final class MergedUpdate {
+        private final Long userId;
+        private final List<PendingUpdate> updates = new ArrayList<>();
+        private UserBookRequest request;
+
+        MergedUpdate(Long userId) {
+            this.userId = userId;
+        }
+
+        void add(PendingUpdate update) {
+            updates.add(update);
+            if (request == null) {
+                request = update.request();
+                return;
+            }
+            UserBookRequest merged = new UserBookRequest();
+            merged.setUserRequest(update.request().getUserRequest());
+            merged.setBookRequests(update.request().getBookRequests() != null
+                    ? update.request().getBookRequests()
+                    : request.getBookRequests());
+            request = merged;
+        }
+
+        Long userId() {
+            return userId;
+        }
+
+        UserBookRequest request() {
+            return request;
+        }
+
+        /**
+         * MDC последнего запроса: его поля пользователя и применяются.
+         */
+        Map<String, String> context() {
+            return updates.get(updates.size() - 1).context();
+        }
+
+        void complete(UserBookResponse response) {
+            updates.forEach(update -> update.complete(response));
+        }
+
+        void fail(Throwable error) {
+            updates.forEach(update -> update.fail(error));
+        }
+    }
+}
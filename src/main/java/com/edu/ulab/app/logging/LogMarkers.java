@@ -0,0 +1,14 @@
+package com.edu.ulab.app.logging;
+
+import lombok.experimental.UtilityClass;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+@UtilityClass
+public class LogMarkers {
+    /**
+     * Сообщение с телом запроса, DTO или сущностью. Такие сообщения пишутся только для доли запросов,
+     * см. {@link PayloadSamplingTurboFilter}.
+     */
+    public static final Marker PAYLOAD = MarkerFactory.getMarker("PAYLOAD");
+}
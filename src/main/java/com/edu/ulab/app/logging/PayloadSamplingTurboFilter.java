@@ -0,0 +1,43 @@
+package com.edu.ulab.app.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Пропускает сообщения с маркером {@link LogMarkers#PAYLOAD} только для доли {@code sampleRate} запросов.
+ * <p>
+ * Решение принимается по хешу {@code requestId} из MDC, поэтому для одного запроса оно одинаково во всех потоках
+ * (MDC копируется в {@code db-call-*}) и на всех инстансах. Отклонённое сообщение не форматируется, то есть
+ * {@code toString} аргументов не вызывается, а {@code log.isInfoEnabled(PAYLOAD)} возвращает {@code false}.
+ * Сообщения без requestId (фоновые задачи, коалесцер) при {@code sampleRate < 1} не пишутся.
+ */
+public class PayloadSamplingTurboFilter extends TurboFilter {
+    private static final String REQUEST_ID = "requestId";
+    private static final int BUCKETS = 1 << 16;
+
+    private volatile int sampledBuckets = BUCKETS;
+
+    public void setSampleRate(double sampleRate) {
+        this.sampledBuckets = (int) Math.round(Math.max(0.0, Math.min(1.0, sampleRate)) * BUCKETS);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (marker == null || sampledBuckets >= BUCKETS || !(marker == LogMarkers.PAYLOAD || marker.contains(LogMarkers.PAYLOAD))) {
+            return FilterReply.NEUTRAL;
+        }
+        return isSampled(MDC.get(REQUEST_ID)) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    boolean isSampled(String requestId) {
+        if (requestId == null) {
+            return false;
+        }
+        int hash = requestId.hashCode() * 0x9E3779B9;
+        return (hash >>> 16) < sampledBuckets;
+    }
+}
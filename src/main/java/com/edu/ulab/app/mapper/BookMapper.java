@@ -2,10 +2,14 @@ package com.edu.ulab.app.mapper;
 
 import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.storage.BookRecord;
 import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.response.BookResponse;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.util.List;
+
 @Mapper(componentModel = "spring")
 public interface BookMapper {
 
@@ -13,7 +17,19 @@ public interface BookMapper {
 
     BookRequest bookDtoToBookRequest(BookDto bookDto);
 
+    @Mapping(target = "person.id", source = "userId")
     Book bookDtoToBook(BookDto bookDto);
 
+    @Mapping(target = "userId", source = "person.id")
     BookDto bookToBookDto(Book book);
+
+    List<Book> bookDtoListToBookList(List<BookDto> bookDtoList);
+
+    List<BookDto> bookListToBookDtoList(List<Book> bookList);
+
+    BookRecord bookDtoToBookRecord(BookDto bookDto);
+
+    BookDto bookRecordToBookDto(BookRecord bookRecord);
+
+    BookResponse bookDtoToBookResponse(BookDto bookDto);
 }
@@ -2,6 +2,7 @@ package com.edu.ulab.app.mapper;
 
 import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.storage.UserRecord;
 import com.edu.ulab.app.web.request.UserRequest;
 import org.mapstruct.Mapper;
 
@@ -14,4 +15,8 @@ public interface UserMapper {
     Person userDtoToPerson(UserDto userDto);
 
     UserDto personToUserDto(Person person);
+
+    UserRecord userDtoToUserRecord(UserDto userDto);
+
+    UserDto userRecordToUserDto(UserRecord userRecord);
 }
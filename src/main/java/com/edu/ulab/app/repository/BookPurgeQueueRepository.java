@@ -0,0 +1,42 @@
+package com.edu.ulab.app.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Очередь пользователей, чьи книги ещё дочищаются фоновой задачей. Хранится в БД, поэтому переживает рестарт.
+ */
+@Repository
+public class BookPurgeQueueRepository {
+    private static final String INSERT_SQL = "INSERT INTO ulab_edu.book_purge(person_id) VALUES (?) ON CONFLICT DO NOTHING";
+    private static final String SELECT_NEXT_SQL = "SELECT person_id FROM ulab_edu.book_purge ORDER BY requested_at LIMIT ?";
+    private static final String DELETE_SQL = "DELETE FROM ulab_edu.book_purge WHERE person_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookPurgeQueueRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void enqueue(Collection<Long> personIds) {
+        if (!personIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, new ArrayList<>(personIds), personIds.size(),
+                    (ps, personId) -> ps.setLong(1, personId));
+        }
+    }
+
+    public List<Long> findNext(int limit) {
+        return jdbcTemplate.queryForList(SELECT_NEXT_SQL, Long.class, limit);
+    }
+
+    public void remove(Collection<Long> personIds) {
+        if (!personIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, new ArrayList<>(personIds), personIds.size(),
+                    (ps, personId) -> ps.setLong(1, personId));
+        }
+    }
+}
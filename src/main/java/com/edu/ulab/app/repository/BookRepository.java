@@ -1,13 +1,20 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookRepository extends CrudRepository<Book, Long> {
@@ -15,4 +22,41 @@ public interface BookRepository extends CrudRepository<Book, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select b from Book b where b.id = :id")
     Optional<Book> findByIdForUpdate(long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Book b where b.id in :ids")
+    List<Book> findAllByIdForUpdate(Collection<Long> ids);
+
+    List<Book> findAllByPersonId(Long personId);
+
+    /**
+     * Все книги живых пользователей проекцией через серверный курсор; поток нужно читать в транзакции и закрыть.
+     * Соединение с person отсекает книги удалённых пользователей, которые ещё ждут в {@code book_purge}.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.id as id, p.id as userId, b.title as title, b.author as author, b.pageCount as pageCount from Book b join b.person p")
+    Stream<BookView> streamAllBooks();
+
+    List<Book> findAllByPersonIdIn(Collection<Long> personIds);
+
+    /**
+     * Seek-пагинация по индексу {@code (person_id, id)}: {@code pageable} задаёт только лимит, смещение всегда 0.
+     */
+    @Query("select b from Book b where b.person.id = :personId and b.id > :afterId order by b.id")
+    List<Book> findPageByPersonId(long personId, long afterId, Pageable pageable);
+
+    /**
+     * Удаляет книги и возвращает их владельцев и число страниц одним запросом ({@code delete ... returning}).
+     */
+    @Query(value = "delete from ulab_edu.book where id in :ids returning person_id as \"personId\", page_count as \"pageCount\"",
+            nativeQuery = true)
+    List<DeletedBook> deleteAllByIdsReturning(Collection<Long> ids);
+
+    /**
+     * Удаляет не больше {@code limit} книг пользователя, чтобы одна транзакция не держала блокировки на всём наборе.
+     */
+    @Modifying
+    @Query(value = "delete from ulab_edu.book where id in (select id from ulab_edu.book where person_id = :personId limit :limit)",
+            nativeQuery = true)
+    int deleteChunkByPersonId(long personId, int limit);
 }
@@ -0,0 +1,16 @@
+package com.edu.ulab.app.repository;
+
+/**
+ * Поля книги без загрузки сущности в persistence context, для потокового чтения всей таблицы.
+ */
+public interface BookView {
+    Long getId();
+
+    Long getUserId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    long getPageCount();
+}
@@ -0,0 +1,10 @@
+package com.edu.ulab.app.repository;
+
+/**
+ * Владелец и число страниц удалённой книги, нужны для уменьшения счётчиков пользователя.
+ */
+public interface DeletedBook {
+    Long getPersonId();
+
+    long getPageCount();
+}
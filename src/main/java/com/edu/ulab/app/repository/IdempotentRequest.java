@@ -0,0 +1,10 @@
+package com.edu.ulab.app.repository;
+
+import java.util.List;
+
+/**
+ * Выполненный запрос создания пользователя с книгами и его результат.
+ * {@code requestHash} - SHA-256 канонического JSON тела запроса в hex.
+ */
+public record IdempotentRequest(String requestId, String requestHash, long userId, List<Long> bookIds) {
+}
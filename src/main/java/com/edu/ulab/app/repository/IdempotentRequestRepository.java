@@ -0,0 +1,67 @@
+package com.edu.ulab.app.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Результаты запросов создания по {@code rqid}. Хранятся в БД, поэтому повтор после рестарта не создаёт дубликат.
+ */
+@Repository
+public class IdempotentRequestRepository {
+    private static final String CLAIM_SQL = """
+            INSERT INTO ulab_edu.idempotent_request(request_id, request_hash) VALUES (?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+    private static final String COMPLETE_SQL = "UPDATE ulab_edu.idempotent_request SET user_id = ?, book_ids = ? WHERE request_id = ?";
+    private static final String SELECT_SQL = """
+            SELECT request_id, request_hash, user_id, book_ids FROM ulab_edu.idempotent_request
+            WHERE request_id = ? AND user_id IS NOT NULL
+            """;
+    private static final String DELETE_EXPIRED_SQL = """
+            DELETE FROM ulab_edu.idempotent_request
+            WHERE request_id IN (SELECT request_id FROM ulab_edu.idempotent_request WHERE created_at < ? LIMIT ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotentRequestRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Занимает {@code requestId} до конца транзакции. {@code false} - запрос уже выполнен; если его выполняет
+     * параллельная транзакция, вставка ждёт её завершения на уникальном ключе.
+     */
+    public boolean claim(String requestId, String requestHash) {
+        return jdbcTemplate.update(CLAIM_SQL, requestId, requestHash) == 1;
+    }
+
+    public void complete(String requestId, long userId, List<Long> bookIds) {
+        jdbcTemplate.update(COMPLETE_SQL, ps -> {
+            ps.setLong(1, userId);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", bookIds.toArray()));
+            ps.setString(3, requestId);
+        });
+    }
+
+    public Optional<IdempotentRequest> find(String requestId) {
+        return jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> {
+                    Array bookIds = rs.getArray("book_ids");
+                    return new IdempotentRequest(rs.getString("request_id"), rs.getString("request_hash"),
+                            rs.getLong("user_id"), Arrays.asList((Long[]) bookIds.getArray()));
+                }, requestId)
+                .stream()
+                .findFirst();
+    }
+
+    public int deleteCreatedBefore(Instant createdBefore, int limit) {
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL, Timestamp.from(createdBefore), limit);
+    }
+}
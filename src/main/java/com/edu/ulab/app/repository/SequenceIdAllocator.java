@@ -0,0 +1,93 @@
+package com.edu.ulab.app.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выдача идентификаторов блоками из общей БД-последовательности {@code sequence}.
+ * <p>
+ * Схема та же, что у hilo-генератора JPA-сущностей ({@code allocationSize = 100}): значение {@code hi}
+ * из последовательности резервирует диапазон {@code [hi * blockSize, hi * blockSize + blockSize - 1]},
+ * поэтому JPA и JdbcTemplate-сервисы не пересекаются по id при одинаковом размере блока.
+ * Внутри блока id выдаются без блокировок через {@link AtomicLong}, за новыми блоками ходит один поток,
+ * и для пачки нужные блоки берутся одним запросом.
+ */
+@Slf4j
+@Repository
+public class SequenceIdAllocator {
+    private static final String NEXT_VALUES_SQL = "SELECT nextval('sequence') FROM generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int blockSize;
+    private volatile Range range = new Range(1, 0);
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate,
+                               @Value("${app.id-allocator.block-size:100}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockSize = blockSize;
+    }
+
+    public long nextId() {
+        return nextIds(1)[0];
+    }
+
+    public long[] nextIds(int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            Range current = range;
+            filled = current.take(ids, filled);
+            if (filled < count) {
+                filled = refill(current, ids, filled);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Все блоки, кроме последнего, целиком уходят текущему вызову, последний становится текущим диапазоном.
+     */
+    private synchronized int refill(Range exhausted, long[] ids, int filled) {
+        if (range != exhausted) {
+            return filled;
+        }
+        int blocks = (ids.length - filled + blockSize - 1) / blockSize;
+        List<Long> hiValues = jdbcTemplate.queryForList(NEXT_VALUES_SQL, Long.class, blocks);
+        for (int i = 0; i < hiValues.size() - 1; i++) {
+            filled = Range.block(hiValues.get(i), blockSize).take(ids, filled);
+        }
+        range = Range.block(hiValues.get(hiValues.size() - 1), blockSize);
+        log.debug("Allocated id blocks: {}", hiValues);
+        return filled;
+    }
+
+    private static final class Range {
+        private final AtomicLong next;
+        private final long last;
+
+        Range(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+
+        static Range block(long hi, int blockSize) {
+            long first = hi * blockSize;
+            return new Range(first == 0 ? 1 : first, first + blockSize - 1);
+        }
+
+        int take(long[] ids, int filled) {
+            int wanted = ids.length - filled;
+            long first = next.getAndAdd(wanted);
+            long end = Math.min(first + wanted - 1, last);
+            for (long id = first; id <= end; id++) {
+                ids[filled++] = id;
+            }
+            return filled;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.edu.ulab.app.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Построчное чтение всех пользователей с книгами одним запросом через серверный курсор.
+ * <p>
+ * PostgreSQL отдаёт строки порциями по {@code fetchSize} только при выключенном autocommit,
+ * поэтому запрос выполняется внутри read-only транзакции.
+ */
+@Repository
+public class UserBookCursorRepository {
+    private static final String SELECT_ALL_SQL = """
+            SELECT p.id AS person_id, p.full_name, p.title AS person_title, p.age,
+                   b.id AS book_id, b.title AS book_title, b.author, b.page_count
+            FROM ulab_edu.person p
+                     LEFT JOIN ulab_edu.book b ON b.person_id = p.id
+            ORDER BY p.id, b.id
+            """;
+
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public UserBookCursorRepository(DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Передаёт в обработчик строки person left join book, упорядоченные по id пользователя и id книги.
+     * У пользователя без книг {@code book_id} равен null.
+     */
+    public void streamAllWithBooks(RowCallbackHandler rowHandler) {
+        readOnlyTransaction.executeWithoutResult(status -> cursorJdbcTemplate.query(SELECT_ALL_SQL, rowHandler));
+    }
+}
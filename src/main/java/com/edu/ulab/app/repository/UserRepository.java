@@ -1,12 +1,18 @@
 package com.edu.ulab.app.repository;
 
+import com.edu.ulab.app.dto.UserBookStatsDto;
 import com.edu.ulab.app.entity.Person;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -18,7 +24,66 @@ public interface UserRepository extends CrudRepository<Person, Long> {
     User has books - book - finished
      */
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    /**
+     * {@code select ... for update} и сразу увеличение версии, даже если поля пользователя потом не изменятся.
+     */
+    @Lock(LockModeType.PESSIMISTIC_FORCE_INCREMENT)
     @Query("select p from Person p where p.id = :id")
     Optional<Person> findByIdForUpdate(long id);
+
+    /**
+     * Без блокировки; версия увеличивается при коммите с проверкой, что её никто не изменил.
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select p from Person p where p.id = :id")
+    Optional<Person> findByIdForVersionIncrement(long id);
+
+    @Query("select p.version from Person p where p.id = :id")
+    Optional<Long> findVersionById(long id);
+
+    /**
+     * Пользователь с книгами одним select через join fetch, без отдельной загрузки {@code bookSet}.
+     */
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    @Query("select distinct p from Person p left join fetch p.bookSet where p.id = :id")
+    Optional<Person> findWithBooksById(long id);
+
+    @Modifying
+    @Query("delete from Person p where p.id in :ids")
+    int deleteAllByIds(Collection<Long> ids);
+
+    /**
+     * Инкремент счётчиков книг без чтения сущности; поля замаплены read-only, поэтому flush их не затирает.
+     */
+    @Modifying
+    @Query("update Person p set p.bookCount = p.bookCount + :bookDelta, p.pageTotal = p.pageTotal + :pageDelta where p.id = :id")
+    int addBookTotals(long id, long bookDelta, long pageDelta);
+
+    @Query("select new com.edu.ulab.app.dto.UserBookStatsDto(p.id, p.bookCount, p.pageTotal) from Person p where p.id = :id")
+    Optional<UserBookStatsDto> findBookStatsById(long id);
+
+    /**
+     * Следующая пачка id пользователей под {@code for update}: пока сверка идёт, книги этих пользователей
+     * не меняются, а ожидающие транзакции применят свои инкременты уже поверх исправленных значений.
+     */
+    @Query(value = "select id from ulab_edu.person where id > :afterId order by id limit :limit for update", nativeQuery = true)
+    List<Long> lockIdsAfter(long afterId, int limit);
+
+    /**
+     * Пересчитывает счётчики пользователей по таблице книг и пишет только разошедшиеся строки.
+     */
+    @Modifying
+    @Query(value = """
+            update ulab_edu.person p
+            set book_count = a.book_count,
+                page_total = a.page_total
+            from (select person.id, count(book.id) as book_count, coalesce(sum(book.page_count), 0) as page_total
+                  from ulab_edu.person person
+                           left join ulab_edu.book book on book.person_id = person.id
+                  where person.id in :ids
+                  group by person.id) a
+            where p.id = a.id
+              and (p.book_count <> a.book_count or p.page_total <> a.page_total)
+            """, nativeQuery = true)
+    int repairBookTotals(Collection<Long> ids);
 }
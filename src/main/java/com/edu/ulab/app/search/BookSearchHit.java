@@ -0,0 +1,8 @@
+package com.edu.ulab.app.search;
+
+/**
+ * Найденная книга и её вес в выдаче: совпадение в названии весит больше, чем в авторе, совпадение с начала поля
+ * и полное совпадение поля добавляют вес.
+ */
+public record BookSearchHit(long id, long userId, String title, String author, int score) {
+}
@@ -0,0 +1,307 @@
+package com.edu.ulab.app.search;
+
+import com.edu.ulab.app.config.ServiceBackendConfig;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.storage.LongObjectMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.function.LongConsumer;
+
+/**
+ * Инвертированный индекс по триграммам названия и автора книг для поиска по подстроке без {@code LIKE '%x%'}.
+ * <p>
+ * Каждая триграмма кодируется в {@code long} и указывает на отсортированный список id книг ({@link Postings}).
+ * Запрос разбивается на триграммы, их списки пересекаются начиная с самого короткого, кандидаты проверяются
+ * на настоящее вхождение подстроки и ранжируются. Индекс заполняется потоковым чтением книг при старте,
+ * до приёма запросов, и дальше меняется фасадом после коммита транзакции.
+ */
+@Slf4j
+@Component
+public class BookSearchIndex implements SmartInitializingSingleton, MeterBinder {
+    public static final int NGRAM_LENGTH = 3;
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_RESULT_WINDOW = 10_000;
+    private static final long[] NO_IDS = new long[0];
+
+    private static final int TITLE_MATCH_SCORE = 4;
+    private static final int AUTHOR_MATCH_SCORE = 2;
+    private static final int PREFIX_MATCH_SCORE = 1;
+    private static final int EXACT_MATCH_SCORE = 2;
+
+    /**
+     * Порядок выдачи: вес по убыванию, при равном весе более короткое название, затем id.
+     */
+    private static final Comparator<BookSearchHit> RANKING =
+            (left, right) -> compareRank(left.score(), titleLength(left.title()), left.id(), right);
+
+    private final BookService bookService;
+    private final LongObjectMap<Postings> postingsByNGram = new LongObjectMap<>();
+    private final LongObjectMap<IndexedBook> books = new LongObjectMap<>();
+    private final LongObjectMap<Postings> bookIdsByUserId = new LongObjectMap<>();
+
+    public BookSearchIndex(@Qualifier(ServiceBackendConfig.BOOK_SERVICE_BACKEND) BookService bookService) {
+        this.bookService = bookService;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        bookService.streamAllBooks(this::index);
+        log.info("Book search index loaded: {} books, {} ngrams in {} ms",
+                books.size(), postingsByNGram.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("app.search.index.books", books, LongObjectMap::size)
+                .description("Books in the search index")
+                .register(registry);
+        Gauge.builder("app.search.index.ngrams", postingsByNGram, LongObjectMap::size)
+                .description("Distinct ngrams in the search index")
+                .register(registry);
+    }
+
+    /**
+     * Страница книг, у которых {@code query} входит в название или автора без учёта регистра.
+     *
+     * @param page номер страницы с 0
+     * @param size размер страницы, приводится к диапазону 1..{@value #MAX_PAGE_SIZE}
+     */
+    public BookSearchResult search(String query, int page, int size) {
+        String normalizedQuery = normalize(query).strip();
+        if (normalizedQuery.length() < NGRAM_LENGTH) {
+            throw new IllegalArgumentException("Search query must be at least " + NGRAM_LENGTH + " characters");
+        }
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        if (page < 0 || (long) (page + 1) * limit > MAX_RESULT_WINDOW) {
+            throw new IllegalArgumentException("Page " + page + " of size " + limit
+                    + " is outside of the first " + MAX_RESULT_WINDOW + " results");
+        }
+
+        int window = (page + 1) * limit;
+        PriorityQueue<BookSearchHit> top = new PriorityQueue<>(Math.min(window, 1024) + 1, RANKING.reversed());
+        int total = 0;
+        for (long id : candidates(normalizedQuery)) {
+            IndexedBook book = books.get(id);
+            int score = book == null ? 0 : score(book, normalizedQuery);
+            if (score == 0) {
+                continue;
+            }
+            total++;
+            // объект попадания создаётся только если книга лучше худшей в текущем окне
+            if (top.size() == window && compareRank(score, titleLength(book.title()), id, top.peek()) >= 0) {
+                continue;
+            }
+            top.add(new BookSearchHit(book.id(), book.userId(), book.title(), book.author(), score));
+            if (top.size() > window) {
+                top.poll();
+            }
+        }
+
+        List<BookSearchHit> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        int from = Math.min(page * limit, ranked.size());
+        return new BookSearchResult(total, List.copyOf(ranked.subList(from, ranked.size())));
+    }
+
+    public void indexAfterCommit(Collection<BookDto> bookDtoList) {
+        List<BookDto> snapshot = List.copyOf(bookDtoList);
+        afterCommit(() -> snapshot.forEach(this::index));
+    }
+
+    public void removeAfterCommit(Collection<Long> bookIds) {
+        List<Long> snapshot = List.copyOf(bookIds);
+        afterCommit(() -> snapshot.forEach(this::remove));
+    }
+
+    /**
+     * Убирает все книги удалённых пользователей, в том числе те, что ещё дочищаются в базе фоновой задачей.
+     */
+    public void removeUsersAfterCommit(Collection<Long> userIds) {
+        List<Long> snapshot = List.copyOf(userIds);
+        afterCommit(() -> snapshot.forEach(userId -> {
+            for (long bookId : bookIdsOfUser(userId)) {
+                remove(bookId);
+            }
+        }));
+    }
+
+    public int size() {
+        return books.size();
+    }
+
+    /**
+     * Добавляет книгу или заменяет её прежнюю версию. Меняются только триграммы, которых нет в обеих версиях.
+     */
+    public void index(BookDto bookDto) {
+        long id = bookDto.getId();
+        IndexedBook book = new IndexedBook(id, bookDto.getUserId(), bookDto.getTitle(), bookDto.getAuthor(),
+                normalize(bookDto.getTitle()), normalize(bookDto.getAuthor()));
+        books.compute(id, (key, previous) -> {
+            long[] previousNGrams = previous == null ? NO_IDS : nGrams(previous);
+            long[] nGrams = nGrams(book);
+            forEachMissing(previousNGrams, nGrams, nGram -> postingsByNGram.compute(nGram,
+                    (gram, postings) -> postings == null ? null : postings.remove(id)));
+            forEachMissing(nGrams, previousNGrams, nGram -> postingsByNGram.compute(nGram,
+                    (gram, postings) -> postings == null ? Postings.of(id) : postings.add(id)));
+            if (previous != null && previous.userId() != book.userId()) {
+                unlinkFromUser(previous.userId(), id);
+            }
+            bookIdsByUserId.compute(book.userId(), (userId, ids) -> ids == null ? Postings.of(id) : ids.add(id));
+            return book;
+        });
+    }
+
+    public void remove(long id) {
+        books.compute(id, (key, previous) -> {
+            if (previous != null) {
+                for (long nGram : nGrams(previous)) {
+                    postingsByNGram.compute(nGram, (gram, postings) -> postings == null ? null : postings.remove(id));
+                }
+                unlinkFromUser(previous.userId(), id);
+            }
+            return null;
+        });
+    }
+
+    private long[] candidates(String normalizedQuery) {
+        long[] nGrams = nGrams(normalizedQuery, NO_IDS);
+        Postings[] lists = new Postings[nGrams.length];
+        for (int i = 0; i < nGrams.length; i++) {
+            lists[i] = postingsByNGram.get(nGrams[i]);
+            if (lists[i] == null) {
+                return NO_IDS;
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(Postings::size));
+        long[] candidates = lists[0].toArray();
+        for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+            candidates = lists[i].retainAll(candidates, candidates.length);
+        }
+        return candidates;
+    }
+
+    private long[] bookIdsOfUser(long userId) {
+        Postings ids = bookIdsByUserId.get(userId);
+        return ids == null ? NO_IDS : ids.toArray();
+    }
+
+    private void unlinkFromUser(long userId, long bookId) {
+        bookIdsByUserId.compute(userId, (key, ids) -> ids == null ? null : ids.remove(bookId));
+    }
+
+    private static int compareRank(int score, int titleLength, long id, BookSearchHit other) {
+        if (score != other.score()) {
+            return score > other.score() ? -1 : 1;
+        }
+        int otherTitleLength = titleLength(other.title());
+        if (titleLength != otherTitleLength) {
+            return titleLength < otherTitleLength ? -1 : 1;
+        }
+        return Long.compare(id, other.id());
+    }
+
+    private static int titleLength(String title) {
+        return title == null ? 0 : title.length();
+    }
+
+    private static int score(IndexedBook book, String normalizedQuery) {
+        return fieldScore(book.normalizedTitle(), normalizedQuery, TITLE_MATCH_SCORE)
+                + fieldScore(book.normalizedAuthor(), normalizedQuery, AUTHOR_MATCH_SCORE);
+    }
+
+    private static int fieldScore(String field, String normalizedQuery, int matchScore) {
+        int index = field.indexOf(normalizedQuery);
+        if (index < 0) {
+            return 0;
+        }
+        if (index > 0) {
+            return matchScore;
+        }
+        return field.length() == normalizedQuery.length()
+                ? matchScore + PREFIX_MATCH_SCORE + EXACT_MATCH_SCORE
+                : matchScore + PREFIX_MATCH_SCORE;
+    }
+
+    private static long[] nGrams(IndexedBook book) {
+        return nGrams(book.normalizedAuthor(), nGrams(book.normalizedTitle(), NO_IDS));
+    }
+
+    /**
+     * Отсортированные различные триграммы строки, объединённые с уже отсортированными {@code into}.
+     * Триграммы не переходят через границу полей.
+     */
+    static long[] nGrams(String value, long[] into) {
+        int count = Math.max(value.length() - NGRAM_LENGTH + 1, 0);
+        long[] result = Arrays.copyOf(into, into.length + count);
+        for (int i = 0; i < count; i++) {
+            result[into.length + i] = encode(value, i);
+        }
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (distinct == 0 || result[distinct - 1] != result[i]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return distinct == result.length ? result : Arrays.copyOf(result, distinct);
+    }
+
+    /**
+     * Три символа по 16 бит; старший бит гарантирует ненулевой ключ, {@code 0} в {@link LongObjectMap} зарезервирован.
+     */
+    private static long encode(String value, int offset) {
+        return 1L << 48
+                | (long) value.charAt(offset) << 32
+                | (long) value.charAt(offset + 1) << 16
+                | value.charAt(offset + 2);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Вызывает {@code action} для каждого элемента отсортированного {@code source}, которого нет в отсортированном {@code other}.
+     */
+    private static void forEachMissing(long[] source, long[] other, LongConsumer action) {
+        int j = 0;
+        for (long value : source) {
+            while (j < other.length && other[j] < value) {
+                j++;
+            }
+            if (j == other.length || other[j] != value) {
+                action.accept(value);
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
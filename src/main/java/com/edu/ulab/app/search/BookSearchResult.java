@@ -0,0 +1,9 @@
+package com.edu.ulab.app.search;
+
+import java.util.List;
+
+/**
+ * Страница выдачи и общее число найденных книг.
+ */
+public record BookSearchResult(int total, List<BookSearchHit> hits) {
+}
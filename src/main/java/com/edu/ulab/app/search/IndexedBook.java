@@ -0,0 +1,7 @@
+package com.edu.ulab.app.search;
+
+/**
+ * Книга в индексе: исходные поля для ответа и приведённые к нижнему регистру для проверки совпадения.
+ */
+record IndexedBook(long id, long userId, String title, String author, String normalizedTitle, String normalizedAuthor) {
+}
@@ -0,0 +1,101 @@
+package com.edu.ulab.app.search;
+
+import java.util.Arrays;
+
+/**
+ * Список id книг одной n-граммы: отсортированный {@code long[]} и число занятых ячеек.
+ * <p>
+ * Экземпляр неизменяем для читателя: он видит только первые {@code size} элементов. Id книг растут,
+ * поэтому добавление в конец пишет в свободную ячейку того же массива и публикует новый экземпляр с
+ * {@code size + 1} без копирования; читатели старого экземпляра эту ячейку не читают. Вставка в середину
+ * и удаление копируют массив. Изменения идут только под блокировкой ключа в {@code LongObjectMap}.
+ */
+final class Postings {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final long[] ids;
+    private final int size;
+
+    private Postings(long[] ids, int size) {
+        this.ids = ids;
+        this.size = size;
+    }
+
+    static Postings of(long id) {
+        long[] ids = new long[INITIAL_CAPACITY];
+        ids[0] = id;
+        return new Postings(ids, 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        return ids[index];
+    }
+
+    Postings add(long id) {
+        if (size > 0 && ids[size - 1] < id) {
+            long[] target = size < ids.length ? ids : Arrays.copyOf(ids, size + (size >> 1) + 1);
+            target[size] = id;
+            return new Postings(target, size + 1);
+        }
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return this;
+        }
+        int insertion = -index - 1;
+        long[] target = new long[Math.max(size + 1, ids.length)];
+        System.arraycopy(ids, 0, target, 0, insertion);
+        target[insertion] = id;
+        System.arraycopy(ids, insertion, target, insertion + 1, size - insertion);
+        return new Postings(target, size + 1);
+    }
+
+    /**
+     * Возвращает {@code null}, если список опустел.
+     */
+    Postings remove(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return this;
+        }
+        if (size == 1) {
+            return null;
+        }
+        long[] target = new long[size - 1];
+        System.arraycopy(ids, 0, target, 0, index);
+        System.arraycopy(ids, index + 1, target, index, size - index - 1);
+        return new Postings(target, size - 1);
+    }
+
+    /**
+     * Оставляет из отсортированных {@code candidates} только id из этого списка; результат тоже отсортирован.
+     * Поиск галопом от последней найденной позиции: O(k log(n/k)), и для коротких, и для сравнимых по длине списков.
+     */
+    long[] retainAll(long[] candidates, int count) {
+        long[] result = new long[count];
+        int found = 0;
+        int from = 0;
+        for (int i = 0; i < count && from < size; i++) {
+            long candidate = candidates[i];
+            int bound = 1;
+            while (from + bound < size && ids[from + bound] < candidate) {
+                bound <<= 1;
+            }
+            int index = Arrays.binarySearch(ids, from + (bound >> 1), Math.min(from + bound + 1, size), candidate);
+            if (index >= 0) {
+                result[found++] = candidate;
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+        }
+        return found == count ? result : Arrays.copyOf(result, found);
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+}
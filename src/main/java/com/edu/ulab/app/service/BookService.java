@@ -3,12 +3,47 @@ package com.edu.ulab.app.service;
 
 import com.edu.ulab.app.dto.BookDto;
 
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
 public interface BookService {
     BookDto createBook(BookDto bookDto);
 
+    List<BookDto> createBooks(List<BookDto> bookDtoList);
+
     BookDto updateBook(BookDto bookDto);
 
     BookDto getBookById(Long id);
 
+    List<BookDto> getBooksByUserId(Long userId);
+
+    List<BookDto> getBooksByUserIds(List<Long> userIds);
+
+    /**
+     * Keyset-страница книг пользователя: не больше {@code limit} книг с id больше {@code afterId}, по возрастанию id.
+     */
+    List<BookDto> getBooksPageByUserId(Long userId, long afterId, int limit);
+
     void deleteBookById(Long id);
+
+    /**
+     * Передаёт все книги по одной, читая их курсором без загрузки всей таблицы в память.
+     * Книги удалённых пользователей, которые ещё ждут фоновой дочистки, не передаются.
+     */
+    void streamAllBooks(Consumer<BookDto> consumer);
+
+    /**
+     * Вставляет книги без id и обновляет книги с id одним проходом. Возвращает книги в порядке входного списка.
+     */
+    List<BookDto> upsertBooks(List<BookDto> bookDtoList);
+
+    void deleteBooksByIds(List<Long> ids);
+
+    /**
+     * Удаляет не больше {@code chunkSize} книг каждого пользователя.
+     * Возвращает пользователей, у которых книги могли остаться.
+     * Счётчики книг пользователя не меняет: вызывается только при удалении самих пользователей.
+     */
+    Set<Long> deleteBookChunksByUserIds(List<Long> userIds, int chunkSize);
 }
@@ -1,15 +1,56 @@
 package com.edu.ulab.app.service;
 
+import com.edu.ulab.app.dto.BookTotalsReconciliation;
+import com.edu.ulab.app.dto.UserBookDto;
+import com.edu.ulab.app.dto.UserBookStatsDto;
 import com.edu.ulab.app.dto.UserDto;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface UserService {
     UserDto createUser(UserDto userDto);
 
+    List<UserDto> createUsers(List<UserDto> userDtoList);
+
     UserDto updateUser(UserDto userDto);
 
+    /**
+     * Обновляет пачку пользователей. Если хотя бы один не найден, бросает {@link com.edu.ulab.app.exception.NotFoundException}.
+     * <p>
+     * Версия каждого пользователя увеличивается, даже если его поля не изменились: книги меняются только
+     * вместе с обновлением пользователя, и новая версия должна отличаться от той, что видел клиент.
+     */
+    List<UserDto> updateUsers(List<UserDto> userDtoList);
+
     UserDto getUserById(Long id);
 
+    /**
+     * Текущая версия пользователя без чтения книг.
+     */
+    long getUserVersion(Long id);
+
+    /**
+     * Пользователь вместе с книгами за одно обращение к хранилищу.
+     */
+    UserBookDto getUserWithBooks(Long id);
+
+    /**
+     * Количество книг и сумма страниц пользователя из счётчиков в его строке, без обращения к книгам.
+     */
+    UserBookStatsDto getUserBookStats(Long id);
+
+    /**
+     * Сверяет счётчики книг следующих {@code limit} пользователей с id больше {@code afterUserId}
+     * с самими книгами и исправляет расхождения. Пользователи пачки блокируются до конца транзакции.
+     */
+    BookTotalsReconciliation reconcileBookTotals(long afterUserId, int limit);
+
+    /**
+     * Удаляет только пользователя, его книги удаляются отдельно через {@link BookService}.
+     */
     void deleteUserById(Long id);
+
+    void deleteUsersByIds(List<Long> ids);
 }
@@ -1,36 +1,85 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.config.LockingMode;
 import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.BookView;
+import com.edu.ulab.app.repository.DeletedBook;
+import com.edu.ulab.app.repository.UserRepository;
 import com.edu.ulab.app.service.BookService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.edu.ulab.app.logging.LogMarkers.PAYLOAD;
+
+/**
+ * Каждое изменение книг в той же транзакции сдвигает счётчики {@code book_count}/{@code page_total} владельцев.
+ */
 @Slf4j
 @Service
 public class BookServiceImpl implements BookService {
 
     private final BookRepository bookRepository;
 
+    private final UserRepository userRepository;
+
     private final BookMapper bookMapper;
 
+    private final LockingMode lockingMode;
+
     public BookServiceImpl(BookRepository bookRepository,
-                           BookMapper bookMapper) {
+                           UserRepository userRepository,
+                           BookMapper bookMapper,
+                           @Value("${app.locking.mode:PESSIMISTIC}") LockingMode lockingMode) {
         this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
         this.bookMapper = bookMapper;
+        this.lockingMode = lockingMode;
     }
 
     @Override
+    @Transactional
     public BookDto createBook(BookDto bookDto) {
         Book book = bookMapper.bookDtoToBook(bookDto);
-        log.info("Mapped book: {}", book);
+        log.info(PAYLOAD, "Mapped book: {}", book);
         Book savedBook = bookRepository.save(book);
-        log.info("Saved book: {}", savedBook);
+        log.info(PAYLOAD, "Saved book: {}", savedBook);
+        BookTotalsDeltas deltas = new BookTotalsDeltas();
+        deltas.added(bookDto.getUserId(), bookDto.getPageCount());
+        applyTotals(deltas);
         return bookMapper.bookToBookDto(savedBook);
     }
 
+    @Override
+    @Transactional
+    public List<BookDto> createBooks(List<BookDto> bookDtoList) {
+        List<Book> books = bookMapper.bookDtoListToBookList(bookDtoList);
+        log.info("Mapped books: {}", books.size());
+        List<Book> savedBooks = new ArrayList<>(books.size());
+        bookRepository.saveAll(books).forEach(savedBooks::add);
+        log.info("Saved books: {}", savedBooks.size());
+        BookTotalsDeltas deltas = new BookTotalsDeltas();
+        bookDtoList.forEach(bookDto -> deltas.added(bookDto.getUserId(), bookDto.getPageCount()));
+        applyTotals(deltas);
+        return bookMapper.bookListToBookDtoList(savedBooks);
+    }
+
     @Override
     public BookDto updateBook(BookDto bookDto) {
         // реализовать недстающие методы
@@ -38,13 +87,131 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BookDto getBookById(Long id) {
-        // реализовать недстающие методы
-        return null;
+        return bookRepository.findById(id)
+                .map(bookMapper::bookToBookDto)
+                .orElseThrow(() -> new NotFoundException("Book with id " + id + " not found"));
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserId(Long userId) {
+        return bookMapper.bookListToBookDtoList(bookRepository.findAllByPersonId(userId));
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserIds(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return bookMapper.bookListToBookDtoList(bookRepository.findAllByPersonIdIn(userIds));
+    }
+
+    @Override
+    public List<BookDto> getBooksPageByUserId(Long userId, long afterId, int limit) {
+        return bookMapper.bookListToBookDtoList(
+                bookRepository.findPageByPersonId(userId, afterId, PageRequest.ofSize(limit)));
     }
 
     @Override
+    @Transactional
     public void deleteBookById(Long id) {
-        // реализовать недстающие методы
+        List<DeletedBook> deleted = bookRepository.deleteAllByIdsReturning(List.of(id));
+        applyTotals(removed(deleted));
+        log.info("Deleted book: {}, rows {}", id, deleted.size());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllBooks(Consumer<BookDto> consumer) {
+        try (Stream<BookView> books = bookRepository.streamAllBooks()) {
+            books.forEach(view -> {
+                BookDto bookDto = new BookDto();
+                bookDto.setId(view.getId());
+                bookDto.setUserId(view.getUserId());
+                bookDto.setTitle(view.getTitle());
+                bookDto.setAuthor(view.getAuthor());
+                bookDto.setPageCount(view.getPageCount());
+                consumer.accept(bookDto);
+            });
+        }
+    }
+
+    /**
+     * Существующие книги загружаются одним select по id (в пессимистическом режиме с {@code for update})
+     * и обновляются через dirty checking,
+     * новые сохраняются через {@code saveAll}, обе группы уходят JDBC batch при flush.
+     */
+    @Override
+    @Transactional
+    public List<BookDto> upsertBooks(List<BookDto> bookDtoList) {
+        List<Long> ids = bookDtoList.stream()
+                .map(BookDto::getId)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<Long, Book> existingBooks = new HashMap<>();
+        if (!ids.isEmpty()) {
+            (lockingMode == LockingMode.OPTIMISTIC ? bookRepository.findAllById(ids) : bookRepository.findAllByIdForUpdate(ids))
+                    .forEach(book -> existingBooks.put(book.getId(), book));
+        }
+
+        List<Book> books = new ArrayList<>(bookDtoList.size());
+        List<Book> newBooks = new ArrayList<>();
+        BookTotalsDeltas deltas = new BookTotalsDeltas();
+        for (BookDto bookDto : bookDtoList) {
+            if (bookDto.getId() == null) {
+                Book book = bookMapper.bookDtoToBook(bookDto);
+                newBooks.add(book);
+                books.add(book);
+                deltas.added(bookDto.getUserId(), bookDto.getPageCount());
+                continue;
+            }
+            Book book = existingBooks.get(bookDto.getId());
+            if (book == null) {
+                throw new NotFoundException("Book with id " + bookDto.getId() + " not found");
+            }
+            deltas.pagesChanged(book.getPerson().getId(), book.getPageCount(), bookDto.getPageCount());
+            book.setTitle(bookDto.getTitle());
+            book.setAuthor(bookDto.getAuthor());
+            book.setPageCount(bookDto.getPageCount());
+            books.add(book);
+        }
+        bookRepository.saveAll(newBooks);
+        applyTotals(deltas);
+        log.info("Upserted books: inserted {}, updated {}", newBooks.size(), books.size() - newBooks.size());
+        return bookMapper.bookListToBookDtoList(books);
+    }
+
+    @Override
+    @Transactional
+    public void deleteBooksByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<DeletedBook> deleted = bookRepository.deleteAllByIdsReturning(ids);
+        applyTotals(removed(deleted));
+        log.info("Deleted books: {} of {}", deleted.size(), ids.size());
+    }
+
+    @Override
+    @Transactional
+    public Set<Long> deleteBookChunksByUserIds(List<Long> userIds, int chunkSize) {
+        Set<Long> remaining = new LinkedHashSet<>();
+        for (Long userId : userIds) {
+            if (bookRepository.deleteChunkByPersonId(userId, chunkSize) >= chunkSize) {
+                remaining.add(userId);
+            }
+        }
+        return remaining;
+    }
+
+    private void applyTotals(BookTotalsDeltas deltas) {
+        deltas.forEach(userRepository::addBookTotals);
+    }
+
+    private static BookTotalsDeltas removed(List<DeletedBook> deletedBooks) {
+        BookTotalsDeltas deltas = new BookTotalsDeltas();
+        deletedBooks.forEach(book -> deltas.removed(book.getPersonId(), book.getPageCount()));
+        return deltas;
     }
 }
@@ -0,0 +1,152 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.storage.BookRecord;
+import com.edu.ulab.app.storage.Storage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.edu.ulab.app.logging.LogMarkers.PAYLOAD;
+
+@Slf4j
+@Service
+public class BookServiceImplStorage implements BookService {
+    private final Storage storage;
+    private final BookMapper bookMapper;
+
+    public BookServiceImplStorage(Storage storage,
+                                  BookMapper bookMapper) {
+        this.storage = storage;
+        this.bookMapper = bookMapper;
+    }
+
+    @Override
+    public BookDto createBook(BookDto bookDto) {
+        Objects.requireNonNull(bookDto.getUserId(), "Book user id must be set");
+        BookRecord savedBook = storage.saveBook(bookMapper.bookDtoToBookRecord(bookDto).withId(0));
+        log.info(PAYLOAD, "Saved book: {}", savedBook);
+        return bookMapper.bookRecordToBookDto(savedBook);
+    }
+
+    /**
+     * Книги группируются по пользователю, чтобы индекс каждого пользователя обновлялся один раз.
+     */
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtoList) {
+        List<BookDto> saved = saveGroupedByUser(bookDtoList.stream()
+                .peek(bookDto -> Objects.requireNonNull(bookDto.getUserId(), "Book user id must be set"))
+                .map(bookMapper::bookDtoToBookRecord)
+                .map(book -> book.withId(0))
+                .toList());
+        log.info("Saved books: {}", bookDtoList.size());
+        return saved;
+    }
+
+    @Override
+    public List<BookDto> upsertBooks(List<BookDto> bookDtoList) {
+        for (BookDto bookDto : bookDtoList) {
+            Objects.requireNonNull(bookDto.getUserId(), "Book user id must be set");
+            if (bookDto.getId() != null && storage.findBook(bookDto.getId()).isEmpty()) {
+                throw new NotFoundException("Book with id " + bookDto.getId() + " not found");
+            }
+        }
+        return saveGroupedByUser(bookDtoList.stream()
+                .map(bookMapper::bookDtoToBookRecord)
+                .toList());
+    }
+
+    private List<BookDto> saveGroupedByUser(List<BookRecord> bookList) {
+        Map<Long, List<BookRecord>> booksByUserId = new LinkedHashMap<>();
+        for (BookRecord book : bookList) {
+            booksByUserId.computeIfAbsent(book.userId(), key -> new ArrayList<>()).add(book);
+        }
+
+        Map<Long, Iterator<BookRecord>> savedByUserId = new HashMap<>();
+        booksByUserId.forEach((userId, books) -> savedByUserId.put(userId, storage.saveBooks(userId, books).iterator()));
+
+        return bookList.stream()
+                .map(book -> savedByUserId.get(book.userId()).next())
+                .map(bookMapper::bookRecordToBookDto)
+                .toList();
+    }
+
+    @Override
+    public BookDto updateBook(BookDto bookDto) {
+        Objects.requireNonNull(bookDto.getId(), "Book id must be set for update");
+        Objects.requireNonNull(bookDto.getUserId(), "Book user id must be set");
+        storage.findBook(bookDto.getId())
+                .orElseThrow(() -> new NotFoundException("Book with id " + bookDto.getId() + " not found"));
+        BookRecord savedBook = storage.saveBook(bookMapper.bookDtoToBookRecord(bookDto));
+        log.info(PAYLOAD, "Updated book: {}", savedBook);
+        return bookMapper.bookRecordToBookDto(savedBook);
+    }
+
+    @Override
+    public BookDto getBookById(Long id) {
+        return storage.findBook(id)
+                .map(bookMapper::bookRecordToBookDto)
+                .orElseThrow(() -> new NotFoundException("Book with id " + id + " not found"));
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserId(Long userId) {
+        return storage.findBooksByUserId(userId)
+                .stream()
+                .map(bookMapper::bookRecordToBookDto)
+                .toList();
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserIds(List<Long> userIds) {
+        return userIds.stream()
+                .flatMap(userId -> storage.findBooksByUserId(userId).stream())
+                .map(bookMapper::bookRecordToBookDto)
+                .toList();
+    }
+
+    @Override
+    public List<BookDto> getBooksPageByUserId(Long userId, long afterId, int limit) {
+        return storage.findBooksPageByUserId(userId, afterId, limit)
+                .stream()
+                .map(bookMapper::bookRecordToBookDto)
+                .toList();
+    }
+
+    @Override
+    public void streamAllBooks(Consumer<BookDto> consumer) {
+        storage.forEachBook(book -> consumer.accept(bookMapper.bookRecordToBookDto(book)));
+    }
+
+    @Override
+    public void deleteBookById(Long id) {
+        storage.removeBook(id)
+                .ifPresent(book -> log.info(PAYLOAD, "Deleted book: {}", book));
+    }
+
+    /**
+     * Книги удаляет {@link Storage#removeUser(long)} вместе с пользователем одной записью журнала,
+     * поэтому здесь удалять нечего и дочистка не нужна.
+     */
+    @Override
+    public Set<Long> deleteBookChunksByUserIds(List<Long> userIds, int chunkSize) {
+        return Set.of();
+    }
+
+    @Override
+    public void deleteBooksByIds(List<Long> ids) {
+        ids.forEach(this::deleteBookById);
+    }
+}
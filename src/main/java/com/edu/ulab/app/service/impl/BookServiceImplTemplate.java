@@ -1,51 +1,112 @@
 package com.edu.ulab.app.service.impl;
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.repository.SequenceIdAllocator;
 import com.edu.ulab.app.service.BookService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
+/**
+ * Каждое изменение книг в той же транзакции сдвигает счётчики {@code BOOK_COUNT}/{@code PAGE_TOTAL} владельцев.
+ */
 @Slf4j
 @Service
 public class BookServiceImplTemplate implements BookService {
+    private static final String INSERT_SQL = "INSERT INTO BOOK(ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID) VALUES (?,?,?,?,?)";
+    private static final String DELETE_RETURNING_SQL = "DELETE FROM BOOK WHERE ID = ANY (?) RETURNING USER_ID, PAGE_COUNT";
+    private static final String DELETE_CHUNK_BY_USER_ID_SQL =
+            "DELETE FROM BOOK WHERE ID IN (SELECT ID FROM BOOK WHERE USER_ID = ? LIMIT ?)";
+    private static final String SELECT_BY_ID_SQL = "SELECT ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID FROM BOOK WHERE ID = ?";
+    private static final String SELECT_BY_USER_ID_SQL = "SELECT ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID FROM BOOK WHERE USER_ID = ?";
+    private static final String UPSERT_SQL = """
+            INSERT INTO BOOK(ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID) VALUES (?,?,?,?,?)
+            ON CONFLICT (ID) DO UPDATE SET TITLE = EXCLUDED.TITLE, AUTHOR = EXCLUDED.AUTHOR,
+                                           PAGE_COUNT = EXCLUDED.PAGE_COUNT, USER_ID = EXCLUDED.USER_ID
+            """;
+    private static final String SELECT_BY_USER_IDS_SQL =
+            "SELECT ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID FROM BOOK WHERE USER_ID = ANY (?)";
+    private static final String SELECT_PAGE_BY_USER_ID_SQL =
+            "SELECT ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID FROM BOOK WHERE USER_ID = ? AND ID > ? ORDER BY ID LIMIT ?";
+    private static final String SELECT_ALL_SQL =
+            "SELECT B.ID, B.TITLE, B.AUTHOR, B.PAGE_COUNT, B.USER_ID FROM BOOK B JOIN PERSON P ON P.ID = B.USER_ID";
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final String SELECT_FOR_UPDATE_BY_IDS_SQL =
+            "SELECT ID, PAGE_COUNT, USER_ID FROM BOOK WHERE ID = ANY (?) FOR UPDATE";
+    private static final String UPDATE_TOTALS_SQL =
+            "UPDATE PERSON SET BOOK_COUNT = BOOK_COUNT + ?, PAGE_TOTAL = PAGE_TOTAL + ? WHERE ID = ?";
+    private static final RowMapper<BookDto> BOOK_ROW_MAPPER = (rs, rowNum) -> {
+        BookDto bookDto = new BookDto();
+        bookDto.setId(rs.getLong("ID"));
+        bookDto.setTitle(rs.getString("TITLE"));
+        bookDto.setAuthor(rs.getString("AUTHOR"));
+        bookDto.setPageCount(rs.getLong("PAGE_COUNT"));
+        bookDto.setUserId(rs.getLong("USER_ID"));
+        return bookDto;
+    };
 
     private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
 
-    public BookServiceImplTemplate(JdbcTemplate jdbcTemplate) {
+    public BookServiceImplTemplate(JdbcTemplate jdbcTemplate,
+                                   SequenceIdAllocator idAllocator) {
         this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
     }
 
     @Override
+    @Transactional
     public BookDto createBook(BookDto bookDto) {
-        final String INSERT_SQL = "INSERT INTO BOOK(TITLE, AUTHOR, PAGE_COUNT, USER_ID) VALUES (?,?,?,?)";
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                new PreparedStatementCreator() {
-                    public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
-                        PreparedStatement ps =
-                                connection.prepareStatement(INSERT_SQL, new String[]{"id"});
-                        ps.setString(1, bookDto.getTitle());
-                        ps.setString(2, bookDto.getAuthor());
-                        ps.setLong(3, bookDto.getPageCount());
-                        ps.setLong(4, bookDto.getUserId());
-                        return ps;
-                    }
-                },
-                keyHolder);
-
-        bookDto.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        bookDto.setId(idAllocator.nextId());
+        jdbcTemplate.update(INSERT_SQL, bookDto.getId(), bookDto.getTitle(), bookDto.getAuthor(),
+                bookDto.getPageCount(), bookDto.getUserId());
+        BookTotalsDeltas deltas = new BookTotalsDeltas();
+        deltas.added(bookDto.getUserId(), bookDto.getPageCount());
+        applyTotals(deltas);
         return bookDto;
     }
 
+    /**
+     * id берутся из {@link SequenceIdAllocator} заранее, поэтому вставка идёт обычным JDBC batch без чтения ключей.
+     */
+    @Override
+    @Transactional
+    public List<BookDto> createBooks(List<BookDto> bookDtoList) {
+        if (bookDtoList.isEmpty()) {
+            return bookDtoList;
+        }
+        long[] ids = idAllocator.nextIds(bookDtoList.size());
+        for (int i = 0; i < ids.length; i++) {
+            bookDtoList.get(i).setId(ids[i]);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, bookDtoList, bookDtoList.size(), (ps, bookDto) -> {
+            ps.setLong(1, bookDto.getId());
+            ps.setString(2, bookDto.getTitle());
+            ps.setString(3, bookDto.getAuthor());
+            ps.setLong(4, bookDto.getPageCount());
+            ps.setLong(5, bookDto.getUserId());
+        });
+        BookTotalsDeltas deltas = new BookTotalsDeltas();
+        bookDtoList.forEach(bookDto -> deltas.added(bookDto.getUserId(), bookDto.getPageCount()));
+        applyTotals(deltas);
+        return bookDtoList;
+    }
+
     @Override
     public BookDto updateBook(BookDto bookDto) {
         // реализовать недстающие методы
@@ -53,13 +114,175 @@ public class BookServiceImplTemplate implements BookService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BookDto getBookById(Long id) {
-        // реализовать недстающие методы
-        return null;
+        return jdbcTemplate.query(SELECT_BY_ID_SQL, BOOK_ROW_MAPPER, id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Book with id " + id + " not found"));
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserId(Long userId) {
+        return jdbcTemplate.query(SELECT_BY_USER_ID_SQL, BOOK_ROW_MAPPER, userId);
     }
 
     @Override
+    public List<BookDto> getBooksByUserIds(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(SELECT_BY_USER_IDS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())),
+                BOOK_ROW_MAPPER);
+    }
+
+    @Override
+    public List<BookDto> getBooksPageByUserId(Long userId, long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_PAGE_BY_USER_ID_SQL, BOOK_ROW_MAPPER, userId, afterId, limit);
+    }
+
+    @Override
+    @Transactional
     public void deleteBookById(Long id) {
-        // реализовать недстающие методы
+        int deleted = deleteReturningTotals(List.of(id));
+        log.info("Deleted book: {}, rows {}", id, deleted);
+    }
+
+    /**
+     * PostgreSQL отдаёт строки порциями по fetch size только при выключенном autocommit, поэтому в транзакции.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllBooks(Consumer<BookDto> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_ALL_SQL);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(BOOK_ROW_MAPPER.mapRow(rs, rs.getRow())));
+    }
+
+    /**
+     * Новые и изменённые книги уходят одним batch {@code INSERT ... ON CONFLICT (ID) DO UPDATE},
+     * id новых книг берутся из {@link SequenceIdAllocator}. Прежние владелец и число страниц изменяемых книг
+     * читаются заранее под {@code for update}, чтобы сдвинуть счётчики ровно на разницу.
+     */
+    @Override
+    @Transactional
+    public List<BookDto> upsertBooks(List<BookDto> bookDtoList) {
+        if (bookDtoList.isEmpty()) {
+            return bookDtoList;
+        }
+        List<BookDto> newBooks = bookDtoList.stream()
+                .filter(bookDto -> bookDto.getId() == null)
+                .toList();
+        BookTotalsDeltas deltas = new BookTotalsDeltas();
+        Map<Long, BookDto> storedBooks = lockStoredBooks(bookDtoList.stream()
+                .map(BookDto::getId)
+                .filter(Objects::nonNull)
+                .toList());
+        for (BookDto bookDto : bookDtoList) {
+            BookDto stored = bookDto.getId() == null ? null : storedBooks.get(bookDto.getId());
+            if (stored != null) {
+                deltas.removed(stored.getUserId(), stored.getPageCount());
+            }
+            deltas.added(bookDto.getUserId(), bookDto.getPageCount());
+        }
+        long[] ids = idAllocator.nextIds(newBooks.size());
+        for (int i = 0; i < ids.length; i++) {
+            newBooks.get(i).setId(ids[i]);
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, bookDtoList, bookDtoList.size(), (ps, bookDto) -> {
+            ps.setLong(1, bookDto.getId());
+            ps.setString(2, bookDto.getTitle());
+            ps.setString(3, bookDto.getAuthor());
+            ps.setLong(4, bookDto.getPageCount());
+            ps.setLong(5, bookDto.getUserId());
+        });
+        applyTotals(deltas);
+        log.info("Upserted books: inserted {}, updated {}", newBooks.size(), bookDtoList.size() - newBooks.size());
+        return bookDtoList;
+    }
+
+    @Override
+    @Transactional
+    public void deleteBooksByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        int deleted = deleteReturningTotals(ids);
+        log.info("Deleted books: {} of {}", deleted, ids.size());
+    }
+
+    /**
+     * Один JDBC batch ограниченных delete, по счётчику строк видно, у кого книги могли остаться.
+     */
+    @Override
+    @Transactional
+    public Set<Long> deleteBookChunksByUserIds(List<Long> userIds, int chunkSize) {
+        Set<Long> remaining = new LinkedHashSet<>();
+        if (userIds.isEmpty()) {
+            return remaining;
+        }
+        int[][] deleteCounts = jdbcTemplate.batchUpdate(DELETE_CHUNK_BY_USER_ID_SQL, userIds, userIds.size(), (ps, userId) -> {
+            ps.setLong(1, userId);
+            ps.setInt(2, chunkSize);
+        });
+
+        int index = 0;
+        for (int[] counts : deleteCounts) {
+            for (int count : counts) {
+                if (count >= chunkSize || count == Statement.SUCCESS_NO_INFO) {
+                    remaining.add(userIds.get(index));
+                }
+                index++;
+            }
+        }
+        return remaining;
+    }
+
+    private Map<Long, BookDto> lockStoredBooks(List<Long> ids) {
+        Map<Long, BookDto> storedBooks = new HashMap<>();
+        if (ids.isEmpty()) {
+            return storedBooks;
+        }
+        jdbcTemplate.query(SELECT_FOR_UPDATE_BY_IDS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                rs -> {
+                    BookDto stored = new BookDto();
+                    stored.setId(rs.getLong("ID"));
+                    stored.setPageCount(rs.getLong("PAGE_COUNT"));
+                    stored.setUserId(rs.getLong("USER_ID"));
+                    storedBooks.put(stored.getId(), stored);
+                });
+        return storedBooks;
+    }
+
+    /**
+     * Удаляет книги одним {@code delete ... returning} и уменьшает счётчики их владельцев.
+     */
+    private int deleteReturningTotals(List<Long> ids) {
+        BookTotalsDeltas deltas = new BookTotalsDeltas();
+        int[] deleted = new int[1];
+        jdbcTemplate.query(DELETE_RETURNING_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                rs -> {
+                    deltas.removed(rs.getLong("USER_ID"), rs.getLong("PAGE_COUNT"));
+                    deleted[0]++;
+                });
+        applyTotals(deltas);
+        return deleted[0];
+    }
+
+    private void applyTotals(BookTotalsDeltas deltas) {
+        List<long[]> rows = new ArrayList<>();
+        deltas.forEach((userId, bookDelta, pageDelta) -> rows.add(new long[]{bookDelta, pageDelta, userId}));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_TOTALS_SQL, rows, rows.size(), (ps, row) -> {
+                ps.setLong(1, row[0]);
+                ps.setLong(2, row[1]);
+                ps.setLong(3, row[2]);
+            });
+        }
     }
 }
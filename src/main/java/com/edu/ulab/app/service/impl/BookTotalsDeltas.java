@@ -0,0 +1,51 @@
+package com.edu.ulab.app.service.impl;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Изменения счётчиков {@code book_count}/{@code page_total} по пользователям в рамках одной операции с книгами.
+ * <p>
+ * Пользователи обходятся по возрастанию id: параллельные транзакции берут блокировки строк {@code person}
+ * в одном порядке и не ловят deadlock друг на друге.
+ */
+final class BookTotalsDeltas {
+    private final Map<Long, long[]> deltaByUserId = new TreeMap<>();
+
+    void added(long userId, long pageCount) {
+        apply(userId, 1, pageCount);
+    }
+
+    void removed(long userId, long pageCount) {
+        apply(userId, -1, -pageCount);
+    }
+
+    void pagesChanged(long userId, long oldPageCount, long newPageCount) {
+        if (oldPageCount != newPageCount) {
+            apply(userId, 0, newPageCount - oldPageCount);
+        }
+    }
+
+    boolean isEmpty() {
+        return deltaByUserId.isEmpty();
+    }
+
+    void forEach(DeltaConsumer consumer) {
+        deltaByUserId.forEach((userId, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0) {
+                consumer.accept(userId, delta[0], delta[1]);
+            }
+        });
+    }
+
+    private void apply(long userId, long bookDelta, long pageDelta) {
+        long[] delta = deltaByUserId.computeIfAbsent(userId, key -> new long[2]);
+        delta[0] += bookDelta;
+        delta[1] += pageDelta;
+    }
+
+    @FunctionalInterface
+    interface DeltaConsumer {
+        void accept(long userId, long bookDelta, long pageDelta);
+    }
+}
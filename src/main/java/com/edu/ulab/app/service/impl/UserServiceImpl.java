@@ -1,12 +1,27 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.config.LockingMode;
+import com.edu.ulab.app.dto.BookTotalsReconciliation;
+import com.edu.ulab.app.dto.UserBookDto;
+import com.edu.ulab.app.dto.UserBookStatsDto;
 import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.repository.UserRepository;
 import com.edu.ulab.app.service.UserService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.edu.ulab.app.logging.LogMarkers.PAYLOAD;
 
 @Slf4j
 @Service
@@ -14,36 +29,120 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+    private final LockingMode lockingMode;
 
     public UserServiceImpl(UserRepository userRepository,
-                           UserMapper userMapper) {
+                           UserMapper userMapper,
+                           BookMapper bookMapper,
+                           @Value("${app.locking.mode:PESSIMISTIC}") LockingMode lockingMode) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+        this.lockingMode = lockingMode;
     }
 
     @Override
     public UserDto createUser(UserDto userDto) {
         Person user = userMapper.userDtoToPerson(userDto);
-        log.info("Mapped user: {}", user);
+        log.info(PAYLOAD, "Mapped user: {}", user);
         Person savedUser = userRepository.save(user);
-        log.info("Saved user: {}", savedUser);
+        log.info(PAYLOAD, "Saved user: {}", savedUser);
         return userMapper.personToUserDto(savedUser);
     }
 
     @Override
+    @Transactional
+    public List<UserDto> createUsers(List<UserDto> userDtoList) {
+        List<Person> users = userDtoList.stream()
+                .map(userMapper::userDtoToPerson)
+                .toList();
+        List<UserDto> savedUsers = new ArrayList<>(users.size());
+        userRepository.saveAll(users).forEach(savedUser -> savedUsers.add(userMapper.personToUserDto(savedUser)));
+        log.info("Saved users: {}", savedUsers.size());
+        return savedUsers;
+    }
+
+    @Override
+    @Transactional
     public UserDto updateUser(UserDto userDto) {
-        // реализовать недстающие методы
-        return null;
+        Objects.requireNonNull(userDto.getId(), "User id must be set for update");
+        Optional<Person> found = lockingMode == LockingMode.OPTIMISTIC
+                ? userRepository.findByIdForVersionIncrement(userDto.getId())
+                : userRepository.findByIdForUpdate(userDto.getId());
+        Person user = found.orElseThrow(() -> new NotFoundException("User with id " + userDto.getId() + " not found"));
+        user.setFullName(userDto.getFullName());
+        user.setTitle(userDto.getTitle());
+        user.setAge(userDto.getAge());
+        log.info(PAYLOAD, "Updated user: {}", userDto);
+        return userMapper.personToUserDto(user);
+    }
+
+    @Override
+    @Transactional
+    public List<UserDto> updateUsers(List<UserDto> userDtoList) {
+        return userDtoList.stream()
+                .map(this::updateUser)
+                .toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public UserDto getUserById(Long id) {
-        // реализовать недстающие методы
-        return null;
+        return userRepository.findById(id)
+                .map(userMapper::personToUserDto)
+                .orElseThrow(() -> new NotFoundException("User with id " + id + " not found"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getUserVersion(Long id) {
+        return userRepository.findVersionById(id)
+                .orElseThrow(() -> new NotFoundException("User with id " + id + " not found"));
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public UserBookDto getUserWithBooks(Long id) {
+        Person person = userRepository.findWithBooksById(id)
+                .orElseThrow(() -> new NotFoundException("User with id " + id + " not found"));
+        UserBookDto userBookDto = new UserBookDto();
+        userBookDto.setUser(userMapper.personToUserDto(person));
+        userBookDto.setBooks(bookMapper.bookListToBookDtoList(List.copyOf(person.getBookSet())));
+        return userBookDto;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserBookStatsDto getUserBookStats(Long id) {
+        return userRepository.findBookStatsById(id)
+                .orElseThrow(() -> new NotFoundException("User with id " + id + " not found"));
+    }
+
+    @Override
+    @Transactional
+    public BookTotalsReconciliation reconcileBookTotals(long afterUserId, int limit) {
+        List<Long> ids = userRepository.lockIdsAfter(afterUserId, limit);
+        if (ids.isEmpty()) {
+            return new BookTotalsReconciliation(afterUserId, 0, 0);
+        }
+        int repaired = userRepository.repairBookTotals(ids);
+        return new BookTotalsReconciliation(ids.get(ids.size() - 1), ids.size(), repaired);
+    }
+
+    @Override
+    @Transactional
     public void deleteUserById(Long id) {
-        // реализовать недстающие методы
+        deleteUsersByIds(List.of(id));
+    }
+
+    @Override
+    @Transactional
+    public void deleteUsersByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        int deleted = userRepository.deleteAllByIds(ids);
+        log.info("Deleted users: {} of {}", deleted, ids.size());
     }
 }
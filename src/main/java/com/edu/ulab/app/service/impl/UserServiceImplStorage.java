@@ -0,0 +1,133 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookTotalsReconciliation;
+import com.edu.ulab.app.dto.UserBookDto;
+import com.edu.ulab.app.dto.UserBookStatsDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.storage.BookRecord;
+import com.edu.ulab.app.storage.Storage;
+import com.edu.ulab.app.storage.UserRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.edu.ulab.app.logging.LogMarkers.PAYLOAD;
+
+@Slf4j
+@Service
+public class UserServiceImplStorage implements UserService {
+    private final Storage storage;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+
+    public UserServiceImplStorage(Storage storage,
+                                  UserMapper userMapper,
+                                  BookMapper bookMapper) {
+        this.storage = storage;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+    }
+
+    @Override
+    public UserDto createUser(UserDto userDto) {
+        UserRecord user = userMapper.userDtoToUserRecord(userDto).withId(0);
+        UserRecord savedUser = storage.saveUser(user);
+        log.info(PAYLOAD, "Saved user: {}", savedUser);
+        return userMapper.userRecordToUserDto(savedUser);
+    }
+
+    @Override
+    public List<UserDto> createUsers(List<UserDto> userDtoList) {
+        return userDtoList.stream()
+                .map(this::createUser)
+                .toList();
+    }
+
+    @Override
+    public UserDto updateUser(UserDto userDto) {
+        Objects.requireNonNull(userDto.getId(), "User id must be set for update");
+        storage.findUser(userDto.getId())
+                .orElseThrow(() -> new NotFoundException("User with id " + userDto.getId() + " not found"));
+        UserRecord savedUser = storage.saveUser(userMapper.userDtoToUserRecord(userDto));
+        log.info(PAYLOAD, "Updated user: {}", savedUser);
+        return userMapper.userRecordToUserDto(savedUser);
+    }
+
+    @Override
+    public List<UserDto> updateUsers(List<UserDto> userDtoList) {
+        return userDtoList.stream()
+                .map(this::updateUser)
+                .toList();
+    }
+
+    @Override
+    public UserDto getUserById(Long id) {
+        return storage.findUser(id)
+                .map(userMapper::userRecordToUserDto)
+                .orElseThrow(() -> new NotFoundException("User with id " + id + " not found"));
+    }
+
+    @Override
+    public long getUserVersion(Long id) {
+        long version = storage.userVersion(id);
+        storage.findUser(id)
+                .orElseThrow(() -> new NotFoundException("User with id " + id + " not found"));
+        return version;
+    }
+
+    /**
+     * Версия читается раньше пользователя и книг: при параллельной записи тело может оказаться новее версии, но не старше.
+     */
+    @Override
+    public UserBookDto getUserWithBooks(Long id) {
+        long version = storage.userVersion(id);
+        UserBookDto userBookDto = new UserBookDto();
+        userBookDto.setUser(getUserById(id));
+        userBookDto.getUser().setVersion(version);
+        userBookDto.setBooks(storage.findBooksByUserId(id)
+                .stream()
+                .map(bookMapper::bookRecordToBookDto)
+                .toList());
+        return userBookDto;
+    }
+
+    /**
+     * Отдельных счётчиков в хранилище нет: книги пользователя берутся из индекса userId -> книги в памяти.
+     */
+    @Override
+    public UserBookStatsDto getUserBookStats(Long id) {
+        storage.findUser(id)
+                .orElseThrow(() -> new NotFoundException("User with id " + id + " not found"));
+        List<BookRecord> books = storage.findBooksByUserId(id);
+        long pageTotal = 0;
+        for (BookRecord book : books) {
+            pageTotal += book.pageCount();
+        }
+        return new UserBookStatsDto(id, books.size(), pageTotal);
+    }
+
+    /**
+     * Сверять нечего: статистика считается по самим книгам.
+     */
+    @Override
+    public BookTotalsReconciliation reconcileBookTotals(long afterUserId, int limit) {
+        return new BookTotalsReconciliation(afterUserId, 0, 0);
+    }
+
+    @Override
+    public void deleteUserById(Long id) {
+        storage.removeUser(id)
+                .ifPresent(user -> log.info(PAYLOAD, "Deleted user: {}", user));
+    }
+
+    @Override
+    public void deleteUsersByIds(List<Long> ids) {
+        ids.forEach(this::deleteUserById);
+    }
+}
@@ -1,60 +1,213 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BookTotalsReconciliation;
+import com.edu.ulab.app.dto.UserBookDto;
+import com.edu.ulab.app.dto.UserBookStatsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.repository.SequenceIdAllocator;
 import com.edu.ulab.app.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 @Slf4j
 @Service
 public class UserServiceImplTemplate implements UserService {
+    private static final String INSERT_SQL = "INSERT INTO PERSON(ID, FULL_NAME, TITLE, AGE) VALUES (?,?,?,?)";
+    private static final String UPDATE_SQL = "UPDATE PERSON SET FULL_NAME = ?, TITLE = ?, AGE = ?, VERSION = VERSION + 1 WHERE ID = ?";
+    private static final String DELETE_SQL = "DELETE FROM PERSON WHERE ID = ?";
+    private static final String SELECT_BY_ID_SQL = "SELECT ID, FULL_NAME, TITLE, AGE, VERSION FROM PERSON WHERE ID = ?";
+    private static final String SELECT_VERSION_SQL = "SELECT VERSION FROM PERSON WHERE ID = ?";
+    private static final String SELECT_WITH_BOOKS_SQL = """
+            SELECT P.ID, P.FULL_NAME, P.TITLE, P.AGE, P.VERSION,
+                   B.ID AS BOOK_ID, B.TITLE AS BOOK_TITLE, B.AUTHOR AS BOOK_AUTHOR, B.PAGE_COUNT AS BOOK_PAGE_COUNT
+            FROM PERSON P
+                     LEFT JOIN BOOK B ON B.USER_ID = P.ID
+            WHERE P.ID = ?
+            """;
+    private static final String SELECT_STATS_SQL = "SELECT ID, BOOK_COUNT, PAGE_TOTAL FROM PERSON WHERE ID = ?";
+    private static final String LOCK_IDS_AFTER_SQL = "SELECT ID FROM PERSON WHERE ID > ? ORDER BY ID LIMIT ? FOR UPDATE";
+    private static final String REPAIR_TOTALS_SQL = """
+            UPDATE PERSON P
+            SET BOOK_COUNT = A.BOOK_COUNT,
+                PAGE_TOTAL = A.PAGE_TOTAL
+            FROM (SELECT U.ID, COUNT(B.ID) AS BOOK_COUNT, COALESCE(SUM(B.PAGE_COUNT), 0) AS PAGE_TOTAL
+                  FROM PERSON U
+                           LEFT JOIN BOOK B ON B.USER_ID = U.ID
+                  WHERE U.ID = ANY (?)
+                  GROUP BY U.ID) A
+            WHERE P.ID = A.ID
+              AND (P.BOOK_COUNT <> A.BOOK_COUNT OR P.PAGE_TOTAL <> A.PAGE_TOTAL)
+            """;
+    private static final RowMapper<UserDto> USER_ROW_MAPPER = (rs, rowNum) -> {
+        UserDto userDto = new UserDto();
+        userDto.setId(rs.getLong("ID"));
+        userDto.setFullName(rs.getString("FULL_NAME"));
+        userDto.setTitle(rs.getString("TITLE"));
+        userDto.setAge(rs.getInt("AGE"));
+        userDto.setVersion(rs.getLong("VERSION"));
+        return userDto;
+    };
+
     private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
 
-    public UserServiceImplTemplate(JdbcTemplate jdbcTemplate) {
+    public UserServiceImplTemplate(JdbcTemplate jdbcTemplate,
+                                   SequenceIdAllocator idAllocator) {
         this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
     }
 
     @Override
     public UserDto createUser(UserDto userDto) {
-
-        final String INSERT_SQL = "INSERT INTO PERSON(FULL_NAME, TITLE, AGE) VALUES (?,?,?)";
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
-                    ps.setString(1, userDto.getFullName());
-                    ps.setString(2, userDto.getTitle());
-                    ps.setLong(3, userDto.getAge());
-                    return ps;
-                }, keyHolder);
-
-        userDto.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        userDto.setId(idAllocator.nextId());
+        jdbcTemplate.update(INSERT_SQL, userDto.getId(), userDto.getFullName(), userDto.getTitle(), userDto.getAge());
         return userDto;
     }
 
+    /**
+     * id берутся из {@link SequenceIdAllocator} заранее, поэтому вставка идёт обычным JDBC batch без чтения ключей.
+     */
+    @Override
+    @Transactional
+    public List<UserDto> createUsers(List<UserDto> userDtoList) {
+        long[] ids = idAllocator.nextIds(userDtoList.size());
+        for (int i = 0; i < ids.length; i++) {
+            userDtoList.get(i).setId(ids[i]);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, userDtoList, userDtoList.size(), (ps, userDto) -> {
+            ps.setLong(1, userDto.getId());
+            ps.setString(2, userDto.getFullName());
+            ps.setString(3, userDto.getTitle());
+            ps.setInt(4, userDto.getAge());
+        });
+        log.info("Created users: {}", userDtoList.size());
+        return userDtoList;
+    }
+
     @Override
     public UserDto updateUser(UserDto userDto) {
-        // реализовать недстающие методы
-        return null;
+        return updateUsers(List.of(userDto)).get(0);
     }
 
+    /**
+     * Все update уходят одним JDBC batch, отсутствующий пользователь определяется по нулевому счётчику строк.
+     */
     @Override
+    @Transactional
+    public List<UserDto> updateUsers(List<UserDto> userDtoList) {
+        userDtoList.forEach(userDto -> Objects.requireNonNull(userDto.getId(), "User id must be set for update"));
+        int[][] updateCounts = jdbcTemplate.batchUpdate(UPDATE_SQL, userDtoList, userDtoList.size(), (ps, userDto) -> {
+            ps.setString(1, userDto.getFullName());
+            ps.setString(2, userDto.getTitle());
+            ps.setLong(3, userDto.getAge());
+            ps.setLong(4, userDto.getId());
+        });
+
+        int index = 0;
+        for (int[] counts : updateCounts) {
+            for (int count : counts) {
+                if (count == 0) {
+                    throw new NotFoundException("User with id " + userDtoList.get(index).getId() + " not found");
+                }
+                index++;
+            }
+        }
+        log.info("Updated users: {}", userDtoList.size());
+        return userDtoList;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public UserDto getUserById(Long id) {
-        // реализовать недстающие методы
-        return null;
+        return jdbcTemplate.query(SELECT_BY_ID_SQL, USER_ROW_MAPPER, id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("User with id " + id + " not found"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getUserVersion(Long id) {
+        return jdbcTemplate.queryForList(SELECT_VERSION_SQL, Long.class, id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("User with id " + id + " not found"));
+    }
+
+    /**
+     * Один select с left join: пользователь берётся из первой строки, книги собираются из всех строк.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public UserBookDto getUserWithBooks(Long id) {
+        UserBookDto userBookDto = new UserBookDto();
+        userBookDto.setBooks(new ArrayList<>());
+        jdbcTemplate.query(SELECT_WITH_BOOKS_SQL, rs -> {
+            if (userBookDto.getUser() == null) {
+                userBookDto.setUser(USER_ROW_MAPPER.mapRow(rs, rs.getRow()));
+            }
+            long bookId = rs.getLong("BOOK_ID");
+            if (!rs.wasNull()) {
+                BookDto bookDto = new BookDto();
+                bookDto.setId(bookId);
+                bookDto.setUserId(id);
+                bookDto.setTitle(rs.getString("BOOK_TITLE"));
+                bookDto.setAuthor(rs.getString("BOOK_AUTHOR"));
+                bookDto.setPageCount(rs.getLong("BOOK_PAGE_COUNT"));
+                userBookDto.getBooks().add(bookDto);
+            }
+        }, id);
+
+        if (userBookDto.getUser() == null) {
+            throw new NotFoundException("User with id " + id + " not found");
+        }
+        return userBookDto;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserBookStatsDto getUserBookStats(Long id) {
+        return jdbcTemplate.query(SELECT_STATS_SQL,
+                        (rs, rowNum) -> new UserBookStatsDto(rs.getLong("ID"), rs.getLong("BOOK_COUNT"), rs.getLong("PAGE_TOTAL")),
+                        id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("User with id " + id + " not found"));
+    }
+
+    @Override
+    @Transactional
+    public BookTotalsReconciliation reconcileBookTotals(long afterUserId, int limit) {
+        List<Long> ids = jdbcTemplate.queryForList(LOCK_IDS_AFTER_SQL, Long.class, afterUserId, limit);
+        if (ids.isEmpty()) {
+            return new BookTotalsReconciliation(afterUserId, 0, 0);
+        }
+        int repaired = jdbcTemplate.update(REPAIR_TOTALS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+        return new BookTotalsReconciliation(ids.get(ids.size() - 1), ids.size(), repaired);
     }
 
     @Override
     public void deleteUserById(Long id) {
-        // реализовать недстающие методы
+        deleteUsersByIds(List.of(id));
+    }
+
+    @Override
+    @Transactional
+    public void deleteUsersByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(DELETE_SQL, ids, ids.size(), (ps, id) -> ps.setLong(1, id));
+        log.info("Deleted users: {}", ids.size());
     }
 }
@@ -0,0 +1,54 @@
+package com.edu.ulab.app.statistics;
+
+import com.edu.ulab.app.entity.Person;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/querystats}: накопленная статистика {@code SessionFactory} и последние запросы
+ * с признаками N+1. Распределения по запросам доступны в {@code /actuator/metrics/app.hibernate.request.*}.
+ */
+@Component
+@Endpoint(id = "querystats")
+public class QueryStatisticsEndpoint {
+    private static final String BOOK_SET_ROLE = Person.class.getName() + ".bookSet";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final QueryStatisticsRecorder recorder;
+
+    public QueryStatisticsEndpoint(EntityManagerFactory entityManagerFactory,
+                                   QueryStatisticsRecorder recorder) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.recorder = recorder;
+    }
+
+    @ReadOperation
+    public Map<String, Object> queryStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> sessionFactory = new LinkedHashMap<>();
+        sessionFactory.put("enabled", statistics.isStatisticsEnabled());
+        sessionFactory.put("prepareStatementCount", statistics.getPrepareStatementCount());
+        sessionFactory.put("queryExecutionCount", statistics.getQueryExecutionCount());
+        sessionFactory.put("queryExecutionMaxTime", statistics.getQueryExecutionMaxTime());
+        sessionFactory.put("queryExecutionMaxTimeQueryString", statistics.getQueryExecutionMaxTimeQueryString());
+        sessionFactory.put("entityLoadCount", statistics.getEntityLoadCount());
+        sessionFactory.put("entityFetchCount", statistics.getEntityFetchCount());
+        sessionFactory.put("collectionLoadCount", statistics.getCollectionLoadCount());
+        sessionFactory.put("collectionFetchCount", statistics.getCollectionFetchCount());
+        CollectionStatistics bookSet = statistics.getCollectionStatistics(BOOK_SET_ROLE);
+        sessionFactory.put("bookSetFetchCount", bookSet == null ? 0 : bookSet.getFetchCount());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sessionFactory", sessionFactory);
+        result.put("nPlusOneSuspects", recorder.recentSuspects());
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package com.edu.ulab.app.statistics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Публикует {@link RequestQueryStatistics} завершённых вызовов: распределения {@code app.hibernate.request.*}
+ * по методу фасада, счётчик {@code app.hibernate.n-plus-one} и последние подозрительные запросы для actuator.
+ * <p>
+ * Запрос считается N+1, если один и тот же SQL или ленивая загрузка одной коллекции повторились
+ * не меньше {@code app.hibernate-stats.n-plus-one-threshold} раз: число запросов растёт с размером выборки.
+ */
+@Slf4j
+@Component
+public class QueryStatisticsRecorder {
+    private static final String REQUEST_ID = "requestId";
+
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+    private final int recentSuspectsLimit;
+    private final Map<String, MethodMeters> meters = new ConcurrentHashMap<>();
+    private final Deque<NPlusOneSuspect> recentSuspects = new ArrayDeque<>();
+
+    public QueryStatisticsRecorder(MeterRegistry meterRegistry,
+                                   @Value("${app.hibernate-stats.n-plus-one-threshold:10}") int nPlusOneThreshold,
+                                   @Value("${app.hibernate-stats.recent-suspects:50}") int recentSuspectsLimit) {
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.recentSuspectsLimit = recentSuspectsLimit;
+    }
+
+    void record(String method, RequestQueryStatistics statistics) {
+        if (statistics.getStatements() == 0 && statistics.getEntityLoads() == 0) {
+            return;
+        }
+        MethodMeters methodMeters = meters.computeIfAbsent(method, this::createMeters);
+        methodMeters.statements.record(statistics.getStatements());
+        methodMeters.entityLoads.record(statistics.getEntityLoads());
+        methodMeters.collectionFetches.record(statistics.getCollectionFetches());
+        methodMeters.slowQueries.record(statistics.getSlowQueries());
+        log.debug("Hibernate statistics for {}: statements {}, entity loads {}, collection fetches {}, slow queries {}",
+                method, statistics.getStatements(), statistics.getEntityLoads(),
+                statistics.getCollectionFetches(), statistics.getSlowQueries());
+
+        Map.Entry<String, Integer> repeatedStatement = statistics.mostRepeatedStatement();
+        Map.Entry<String, Integer> fetchedCollection = statistics.mostFetchedCollection();
+        boolean repeatedSql = repeatedStatement != null && repeatedStatement.getValue() >= nPlusOneThreshold;
+        boolean repeatedFetch = fetchedCollection != null && fetchedCollection.getValue() >= nPlusOneThreshold;
+        if (!repeatedSql && !repeatedFetch) {
+            return;
+        }
+        methodMeters.nPlusOne.increment();
+        NPlusOneSuspect suspect = new NPlusOneSuspect(Instant.now(), MDC.get(REQUEST_ID), method,
+                statistics.getStatements(), statistics.getEntityLoads(), statistics.getCollectionFetches(),
+                repeatedStatement == null ? null : repeatedStatement.getKey(),
+                repeatedStatement == null ? 0 : repeatedStatement.getValue(),
+                fetchedCollection == null ? null : fetchedCollection.getKey(),
+                fetchedCollection == null ? 0 : fetchedCollection.getValue());
+        log.warn("Possible N+1 in {}: {}", method, suspect);
+        synchronized (recentSuspects) {
+            if (recentSuspects.size() >= recentSuspectsLimit) {
+                recentSuspects.removeFirst();
+            }
+            recentSuspects.addLast(suspect);
+        }
+    }
+
+    /**
+     * Последние запросы с признаками N+1, от новых к старым.
+     */
+    public List<NPlusOneSuspect> recentSuspects() {
+        synchronized (recentSuspects) {
+            List<NPlusOneSuspect> result = new ArrayList<>(recentSuspects);
+            Collections.reverse(result);
+            return result;
+        }
+    }
+
+    private MethodMeters createMeters(String method) {
+        return new MethodMeters(
+                summary("app.hibernate.request.statements", "JDBC statements prepared per call", method),
+                summary("app.hibernate.request.entity-loads", "Entities loaded per call", method),
+                summary("app.hibernate.request.collection-fetches", "Lazy collections initialized per call", method),
+                summary("app.hibernate.request.slow-queries", "Statements slower than the threshold per call", method),
+                Counter.builder("app.hibernate.n-plus-one")
+                        .description("Calls flagged as N+1")
+                        .tag("method", method)
+                        .register(meterRegistry));
+    }
+
+    private DistributionSummary summary(String name, String description, String method) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("method", method)
+                .register(meterRegistry);
+    }
+
+    private record MethodMeters(DistributionSummary statements,
+                                DistributionSummary entityLoads,
+                                DistributionSummary collectionFetches,
+                                DistributionSummary slowQueries,
+                                Counter nPlusOne) {
+    }
+
+    public record NPlusOneSuspect(Instant timestamp,
+                                  String requestId,
+                                  String method,
+                                  int statements,
+                                  int entityLoads,
+                                  int collectionFetches,
+                                  String repeatedSql,
+                                  int repeatedSqlCount,
+                                  String collectionRole,
+                                  int collectionFetchCount) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.edu.ulab.app.statistics;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Замер времени выполнения JDBC-запросов сессии для счётчика медленных запросов.
+ * Hibernate создаёт экземпляр на каждую сессию по имени класса ({@code hibernate.session.events.auto}).
+ */
+public class QueryTimingSessionListener extends BaseSessionEventListener {
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        RequestQueryStatistics statistics = RequestQueryStatistics.current();
+        if (statistics != null) {
+            statistics.statementExecuteStarted();
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestQueryStatistics statistics = RequestQueryStatistics.current();
+        if (statistics != null) {
+            statistics.statementExecuteFinished();
+        }
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        jdbcExecuteStatementStart();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        jdbcExecuteStatementEnd();
+    }
+}
@@ -0,0 +1,110 @@
+package com.edu.ulab.app.statistics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Счётчики Hibernate одной единицы работы (вызова фасада) в текущем потоке.
+ * <p>
+ * Глобальная {@code SessionFactory.getStatistics()} складывает все запросы вместе, поэтому по ней не видно,
+ * какой запрос сделал N+1. Здесь счётчики живут в {@link ThreadLocal} от {@link #start} до {@link #finish}
+ * и заполняются хуками Hibernate из того же потока.
+ */
+public final class RequestQueryStatistics {
+    private static final ThreadLocal<RequestQueryStatistics> CURRENT = new ThreadLocal<>();
+    private static final int MAX_DISTINCT_STATEMENTS = 256;
+
+    private final long slowQueryThresholdNanos;
+    private final Map<String, Integer> statementCounts = new HashMap<>();
+    private final Map<String, Integer> collectionFetchCounts = new HashMap<>();
+    private int statements;
+    private int entityLoads;
+    private int collectionFetches;
+    private int slowQueries;
+    private long executeStart;
+
+    private RequestQueryStatistics(long slowQueryThresholdNanos) {
+        this.slowQueryThresholdNanos = slowQueryThresholdNanos;
+    }
+
+    /**
+     * Начинает сбор в текущем потоке. Если сбор уже идёт (вложенный вызов), возвращает {@code null}.
+     */
+    static RequestQueryStatistics start(long slowQueryThresholdNanos) {
+        if (CURRENT.get() != null) {
+            return null;
+        }
+        RequestQueryStatistics statistics = new RequestQueryStatistics(slowQueryThresholdNanos);
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    static RequestQueryStatistics current() {
+        return CURRENT.get();
+    }
+
+    void finish() {
+        CURRENT.remove();
+    }
+
+    void statementPrepared(String sql) {
+        statements++;
+        if (statementCounts.size() < MAX_DISTINCT_STATEMENTS || statementCounts.containsKey(sql)) {
+            statementCounts.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void statementExecuteStarted() {
+        executeStart = System.nanoTime();
+    }
+
+    void statementExecuteFinished() {
+        if (executeStart != 0 && System.nanoTime() - executeStart >= slowQueryThresholdNanos) {
+            slowQueries++;
+        }
+        executeStart = 0;
+    }
+
+    void entityLoaded() {
+        entityLoads++;
+    }
+
+    void collectionFetched(String role) {
+        collectionFetches++;
+        collectionFetchCounts.merge(role, 1, Integer::sum);
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getEntityLoads() {
+        return entityLoads;
+    }
+
+    public int getCollectionFetches() {
+        return collectionFetches;
+    }
+
+    public int getSlowQueries() {
+        return slowQueries;
+    }
+
+    /**
+     * Самый часто повторённый SQL, {@code null} если запросов не было.
+     */
+    Map.Entry<String, Integer> mostRepeatedStatement() {
+        return statementCounts.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElse(null);
+    }
+
+    /**
+     * Коллекция, которая догружалась чаще всего, {@code null} если ленивых загрузок не было.
+     */
+    Map.Entry<String, Integer> mostFetchedCollection() {
+        return collectionFetchCounts.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElse(null);
+    }
+}
@@ -0,0 +1,48 @@
+package com.edu.ulab.app.statistics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Собирает {@link RequestQueryStatistics} на время вызова публичного метода фасада.
+ * Вызов фасада выполняется в одном потоке (HTTP, {@code db-call-*} или поток коалесцера),
+ * а {@code requestId} в MDC уже скопирован туда из {@code HttpRequestFilter}.
+ * Аспект стоит снаружи {@code @Transactional}, чтобы учесть и запросы flush при коммите.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestQueryStatisticsAspect {
+    private final QueryStatisticsRecorder recorder;
+    private final boolean enabled;
+    private final long slowQueryThresholdNanos;
+
+    public RequestQueryStatisticsAspect(QueryStatisticsRecorder recorder,
+                                        @Value("${app.hibernate-stats.enabled:true}") boolean enabled,
+                                        @Value("${app.hibernate-stats.slow-query-threshold:100ms}") Duration slowQueryThreshold) {
+        this.recorder = recorder;
+        this.enabled = enabled;
+        this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+    }
+
+    @Around("execution(public * com.edu.ulab.app.facade.UserDataFacade.*(..))")
+    public Object collect(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestQueryStatistics statistics = enabled ? RequestQueryStatistics.start(slowQueryThresholdNanos) : null;
+        if (statistics == null) {
+            return joinPoint.proceed();
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            statistics.finish();
+            recorder.record(joinPoint.getSignature().getName(), statistics);
+        }
+    }
+}
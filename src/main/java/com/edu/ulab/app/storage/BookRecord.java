@@ -0,0 +1,11 @@
+package com.edu.ulab.app.storage;
+
+/**
+ * Неизменяемая запись книги в хранилище. {@code id == 0} означает, что идентификатор ещё не присвоен.
+ */
+public record BookRecord(long id, long userId, String title, String author, long pageCount) {
+
+    public BookRecord withId(long id) {
+        return new BookRecord(id, userId, title, author, pageCount);
+    }
+}
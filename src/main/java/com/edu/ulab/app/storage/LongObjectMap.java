@@ -0,0 +1,327 @@
+package com.edu.ulab.app.storage;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * Потокобезопасная хеш-таблица с примитивными ключами {@code long}.
+ * <p>
+ * Ключи разбиты на сегменты, каждый сегмент - таблица с открытой адресацией под своим {@link StampedLock}.
+ * Чтение идёт без блокировки (optimistic read) и берёт read lock только если параллельно была запись в тот же сегмент.
+ * Ключ {@code 0} зарезервирован как признак пустой ячейки.
+ *
+ * @param <V> тип значения
+ */
+public class LongObjectMap<V> {
+    private static final int DEFAULT_SEGMENTS = 64;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+    private static final long EMPTY = 0L;
+
+    private final Segment<V>[] segments;
+    private final int segmentMask;
+
+    public LongObjectMap() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public LongObjectMap(int concurrencyLevel) {
+        int count = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1) << 1);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>();
+        }
+        this.segmentMask = count - 1;
+    }
+
+    public V get(long key) {
+        checkKey(key);
+        return segmentFor(key).get(key);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    public V put(long key, V value) {
+        checkKey(key);
+        return segmentFor(key).put(key, value);
+    }
+
+    public V remove(long key) {
+        checkKey(key);
+        return segmentFor(key).remove(key);
+    }
+
+    /**
+     * Атомарно пересчитывает значение по ключу. Если функция вернула {@code null}, ключ удаляется.
+     */
+    public V compute(long key, LongObjectFunction<? super V, ? extends V> remapping) {
+        checkKey(key);
+        return segmentFor(key).compute(key, remapping);
+    }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> mapping) {
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        return compute(key, (k, old) -> old != null ? old : mapping.apply(key));
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Обходит все пары ключ-значение. Каждый сегмент обходится по снимку своей таблицы.
+     */
+    public void forEach(LongObjectConsumer<? super V> action) {
+        for (Segment<V> segment : segments) {
+            segment.forEach(action);
+        }
+    }
+
+    private Segment<V> segmentFor(long key) {
+        return segments[(int) (mix(key) >>> 32) & segmentMask];
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+
+    /**
+     * Финализатор murmur3: последовательные id равномерно расходятся и по сегментам, и по ячейкам.
+     */
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @FunctionalInterface
+    public interface LongObjectConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    @FunctionalInterface
+    public interface LongObjectFunction<V, R> {
+        R apply(long key, V value);
+    }
+
+    /**
+     * Ключи и значения меняются только вместе, поэтому при оптимистичном чтении ссылка на таблицу всегда согласована.
+     */
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+        }
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+        private int size;
+
+        V get(long key) {
+            long stamp = lock.tryOptimisticRead();
+            V value = find(table, key);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        V put(long key, V value) {
+            long stamp = lock.writeLock();
+            try {
+                return insert(key, value);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        V remove(long key) {
+            long stamp = lock.writeLock();
+            try {
+                return delete(key);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        V compute(long key, LongObjectFunction<? super V, ? extends V> remapping) {
+            long stamp = lock.writeLock();
+            try {
+                V old = find(table, key);
+                V value = remapping.apply(key, old);
+                if (value == null) {
+                    if (old != null) {
+                        delete(key);
+                    }
+                } else {
+                    insert(key, value);
+                }
+                return value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                table = new Table(INITIAL_SEGMENT_CAPACITY);
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(LongObjectConsumer<? super V> action) {
+            long[] keys;
+            Object[] values;
+            long stamp = lock.readLock();
+            try {
+                keys = table.keys.clone();
+                values = table.values.clone();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    action.accept(keys[i], (V) values[i]);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> V find(Table table, long key) {
+            long[] keys = table.keys;
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            for (int probe = 0; probe < keys.length; probe++) {
+                long current = keys[index];
+                if (current == key) {
+                    return (V) table.values[index];
+                }
+                if (current == EMPTY) {
+                    return null;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V insert(long key, V value) {
+            Table current = table;
+            long[] keys = current.keys;
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            while (keys[index] != EMPTY) {
+                if (keys[index] == key) {
+                    V old = (V) current.values[index];
+                    current.values[index] = value;
+                    return old;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            current.values[index] = value;
+            if (++size > (keys.length >> 1) + (keys.length >> 2)) {
+                resize();
+            }
+            return null;
+        }
+
+        /**
+         * Удаление со сдвигом следующих элементов цепочки назад, чтобы не оставлять tombstone.
+         */
+        @SuppressWarnings("unchecked")
+        private V delete(long key) {
+            Table current = table;
+            long[] keys = current.keys;
+            Object[] values = current.values;
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            while (keys[index] != key) {
+                if (keys[index] == EMPTY) {
+                    return null;
+                }
+                index = (index + 1) & mask;
+            }
+            V old = (V) values[index];
+            size--;
+
+            int gap = index;
+            int next = (gap + 1) & mask;
+            while (keys[next] != EMPTY) {
+                int home = (int) mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[gap] = EMPTY;
+            values[gap] = null;
+            return old;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void resize() {
+            Table old = table;
+            Table resized = new Table(old.keys.length << 1);
+            int mask = resized.keys.length - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                long key = old.keys[i];
+                if (key != EMPTY) {
+                    int index = (int) mix(key) & mask;
+                    while (resized.keys[index] != EMPTY) {
+                        index = (index + 1) & mask;
+                    }
+                    resized.keys[index] = key;
+                    resized.values[index] = old.values[i];
+                }
+            }
+            table = resized;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.edu.ulab.app.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Последовательное чтение файла через окна {@link MappedByteBuffer} только на чтение.
+ */
+final class MappedFileReader implements Closeable {
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    MappedFileReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    /**
+     * Возвращает срез следующих {@code length} байт или {@code null}, если файл закончился раньше.
+     */
+    ByteBuffer next(int length) throws IOException {
+        if (length < 0 || size - position < length) {
+            return null;
+        }
+        long offsetInWindow = position - windowStart;
+        if (window == null || window.limit() - offsetInWindow < length) {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - position, Math.max(WINDOW_SIZE, length)));
+            offsetInWindow = 0;
+        }
+        ByteBuffer slice = window.slice((int) offsetInWindow, length);
+        position += length;
+        return slice;
+    }
+
+    long position() {
+        return position;
+    }
+
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,70 @@
+package com.edu.ulab.app.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Последовательная запись в файл через окна {@link MappedByteBuffer}. По закрытию файл обрезается до записанного размера.
+ */
+final class MappedFileWriter implements Closeable {
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    MappedFileWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Возвращает буфер, в котором гарантированно есть {@code length} свободных байт с текущей позиции.
+     */
+    MappedByteBuffer reserve(int length) throws IOException {
+        if (window == null || window.remaining() < length) {
+            if (window != null) {
+                window.force();
+            }
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, Math.max(WINDOW_SIZE, length));
+        }
+        position += length;
+        return window;
+    }
+
+    /**
+     * Пропускает {@code length} байт, например под заголовок, который будет записан позже.
+     */
+    void skip(int length) throws IOException {
+        MappedByteBuffer buffer = reserve(length);
+        buffer.position(buffer.position() + length);
+    }
+
+    long position() {
+        return position;
+    }
+
+    FileChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (window != null) {
+                window.force();
+            }
+            channel.truncate(position);
+            channel.force(true);
+        } finally {
+            window = null;
+            channel.close();
+        }
+    }
+}
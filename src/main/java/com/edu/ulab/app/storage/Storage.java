@@ -1,11 +1,407 @@
 package com.edu.ulab.app.storage;
 
+import com.edu.ulab.app.exception.NotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-memory хранилище пользователей и книг.
+ * <p>
+ * Пользователи и книги лежат в {@link LongObjectMap} по примитивному ключу, связь пользователь - книги
+ * хранится во вторичном индексе userId -> массив id книг (copy-on-write, читается без блокировок).
+ * Идентификаторы выдаются общим атомарным счётчиком, как и общая {@code sequence} в БД.
+ * <p>
+ * Запись в журнал ({@link StorageChangeListener}) и применение к памяти идут одним шагом под общей блокировкой
+ * {@code journalLock}, которую снимок берёт эксклюзивно на переключение поколения журнала
+ * ({@link #withWritesPaused}): запись, попавшая в старое поколение, уже видна снимку. Записи одного пользователя
+ * и его книг дополнительно идут под монитором его полосы, поэтому в журнал и в память попадают в одном порядке.
+ * <p>
+ * Версии пользователей не сохраняются на диск: у всех пользователей, не менявшихся после старта, версия равна
+ * стартовой, а она берётся от текущего времени и больше любой версии до перезапуска, поэтому ETag не повторяются.
+ */
+@Component
 public class Storage {
-    //todo создать хранилище в котором будут содержаться данные
-    // сделать абстракции через которые можно будет производить операции с хранилищем
-    // продумать логику поиска и сохранения
-    // продумать возможные ошибки
-    // учесть, что при сохранеии юзера или книги, должен генерироваться идентификатор
-    // продумать что у узера может быть много книг и нужно создать эту связь
-    // так же учесть, что методы хранилища принимают друго тип данных - учесть это в абстракции
+    private static final long[] NO_IDS = new long[0];
+    private static final int WRITE_STRIPES = 64;
+
+    private final AtomicLong idSequence = new AtomicLong();
+    private final long startVersion = System.currentTimeMillis() << 20;
+    private final AtomicLong versionSequence = new AtomicLong(startVersion);
+    private final LongObjectMap<UserRecord> users = new LongObjectMap<>();
+    private final LongObjectMap<BookRecord> books = new LongObjectMap<>();
+    private final LongObjectMap<long[]> bookIdsByUserId = new LongObjectMap<>();
+    private final LongObjectMap<Long> versionByUserId = new LongObjectMap<>();
+    private final ReentrantReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final Object[] writeStripes = new Object[WRITE_STRIPES];
+    private volatile StorageChangeListener changeListener = StorageChangeListener.NOOP;
+
+    public Storage() {
+        for (int i = 0; i < WRITE_STRIPES; i++) {
+            writeStripes[i] = new Object();
+        }
+    }
+
+    public void setChangeListener(StorageChangeListener changeListener) {
+        this.changeListener = changeListener == null ? StorageChangeListener.NOOP : changeListener;
+    }
+
+    public long nextId() {
+        return idSequence.incrementAndGet();
+    }
+
+    public long lastId() {
+        return idSequence.get();
+    }
+
+    public UserRecord saveUser(UserRecord user) {
+        UserRecord saved = user.id() == 0 ? user.withId(nextId()) : user;
+        return logged(saved.id(), () -> {
+            changeListener.userSaved(saved);
+            users.put(saved.id(), saved);
+            touchUser(saved.id());
+            return saved;
+        });
+    }
+
+    public long userVersion(long id) {
+        Long version = versionByUserId.get(id);
+        return version == null ? startVersion : version;
+    }
+
+    public Optional<UserRecord> findUser(long id) {
+        return Optional.ofNullable(users.get(id));
+    }
+
+    /**
+     * Удаляет пользователя вместе со всеми его книгами.
+     */
+    public Optional<UserRecord> removeUser(long id) {
+        return logged(id, () -> {
+            if (!users.containsKey(id)) {
+                return Optional.empty();
+            }
+            changeListener.userRemoved(id);
+            return Optional.ofNullable(removeUserWithBooks(id));
+        });
+    }
+
+    private UserRecord removeUserWithBooks(long id) {
+        UserRecord removed = users.remove(id);
+        versionByUserId.remove(id);
+        long[] bookIds = bookIdsByUserId.remove(id);
+        if (bookIds != null) {
+            for (long bookId : bookIds) {
+                books.remove(bookId);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Сохраняет книгу и обновляет индекс userId -> книги. Книга и индекс меняются под блокировкой сегмента индекса,
+     * поэтому параллельное удаление пользователя не оставляет книг-сирот.
+     */
+    public BookRecord saveBook(BookRecord book) {
+        BookRecord saved = book.id() == 0 ? book.withId(nextId()) : book;
+        return logged(saved.userId(), () -> {
+            if (!users.containsKey(saved.userId())) {
+                throw new NotFoundException("User with id " + saved.userId() + " not found");
+            }
+            changeListener.bookSaved(saved);
+            BookRecord previous = book.id() == 0 ? null : books.get(saved.id());
+            if (previous != null && previous.userId() != saved.userId()) {
+                unlinkBook(previous.userId(), previous.id());
+                touchUser(previous.userId());
+            }
+            bookIdsByUserId.compute(saved.userId(), (userId, ids) -> {
+                if (!users.containsKey(userId)) {
+                    throw new NotFoundException("User with id " + userId + " not found");
+                }
+                books.put(saved.id(), saved);
+                return append(ids, saved.id());
+            });
+            touchUser(saved.userId());
+            return saved;
+        });
+    }
+
+    /**
+     * Сохраняет книги одного пользователя с одним обновлением индекса.
+     */
+    public List<BookRecord> saveBooks(long userId, List<BookRecord> bookList) {
+        List<BookRecord> saved = new ArrayList<>(bookList.size());
+        long[] newIds = new long[bookList.size()];
+        int newCount = 0;
+        for (BookRecord book : bookList) {
+            if (book.id() == 0) {
+                BookRecord withId = book.withId(nextId());
+                newIds[newCount++] = withId.id();
+                saved.add(withId);
+            } else {
+                saved.add(book);
+            }
+        }
+        long[] generatedIds = Arrays.copyOf(newIds, newCount);
+        return logged(userId, () -> {
+            if (!users.containsKey(userId)) {
+                throw new NotFoundException("User with id " + userId + " not found");
+            }
+            changeListener.booksSaved(saved);
+            bookIdsByUserId.compute(userId, (key, ids) -> {
+                if (!users.containsKey(key)) {
+                    throw new NotFoundException("User with id " + key + " not found");
+                }
+                long[] result = ids == null ? NO_IDS : ids;
+                for (BookRecord book : saved) {
+                    books.put(book.id(), book);
+                }
+                for (BookRecord book : bookList) {
+                    if (book.id() != 0) {
+                        result = append(result, book.id());
+                    }
+                }
+                return merge(result, generatedIds);
+            });
+            touchUser(userId);
+            return saved;
+        });
+    }
+
+    public Optional<BookRecord> findBook(long id) {
+        return Optional.ofNullable(books.get(id));
+    }
+
+    public Optional<BookRecord> removeBook(long id) {
+        BookRecord found = books.get(id);
+        if (found == null) {
+            return Optional.empty();
+        }
+        return logged(found.userId(), () -> {
+            BookRecord book = books.get(id);
+            if (book == null) {
+                return Optional.empty();
+            }
+            changeListener.bookRemoved(id);
+            unlinkBook(book.userId(), id);
+            BookRecord removed = books.remove(id);
+            touchUser(book.userId());
+            return Optional.ofNullable(removed);
+        });
+    }
+
+    /**
+     * Выполняет действие, когда ни одна запись не находится между журналом и памятью, и не пускает новые.
+     */
+    <T> T withWritesPaused(PausedAction<T> action) throws IOException {
+        journalLock.writeLock().lock();
+        try {
+            return action.run();
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Запись в журнал и применение к памяти одним шагом относительно снимка и других записей того же пользователя.
+     */
+    private <T> T logged(long userId, Supplier<T> write) {
+        journalLock.readLock().lock();
+        try {
+            synchronized (writeStripes[(int) (Long.hashCode(userId) & (WRITE_STRIPES - 1))]) {
+                return write.get();
+            }
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Новая версия пользователя после изменения его самого или его книг. Транзакций нет, поэтому версия
+     * меняется только после записи: прочитавший новую версию уже видит изменённые данные.
+     */
+    private void touchUser(long userId) {
+        versionByUserId.compute(userId, (key, version) -> users.containsKey(key) ? versionSequence.incrementAndGet() : null);
+    }
+
+    public long[] findBookIdsByUserId(long userId) {
+        long[] ids = bookIdsByUserId.get(userId);
+        return ids == null ? NO_IDS : ids.clone();
+    }
+
+    /**
+     * Страница книг пользователя с id больше {@code afterId} в порядке возрастания id.
+     */
+    public List<BookRecord> findBooksPageByUserId(long userId, long afterId, int limit) {
+        long[] ids = bookIdsByUserId.get(userId);
+        if (ids == null) {
+            return List.of();
+        }
+        int index = Arrays.binarySearch(ids, afterId);
+        int from = index >= 0 ? index + 1 : -index - 1;
+        List<BookRecord> result = new ArrayList<>(Math.min(limit, ids.length - from));
+        for (int i = from; i < ids.length && result.size() < limit; i++) {
+            BookRecord book = books.get(ids[i]);
+            if (book != null) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    public List<BookRecord> findBooksByUserId(long userId) {
+        long[] ids = bookIdsByUserId.get(userId);
+        if (ids == null) {
+            return List.of();
+        }
+        List<BookRecord> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            BookRecord book = books.get(id);
+            if (book != null) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    public int userCount() {
+        return users.size();
+    }
+
+    public int bookCount() {
+        return books.size();
+    }
+
+    public void forEachUser(Consumer<UserRecord> action) {
+        users.forEach((id, user) -> action.accept(user));
+    }
+
+    public void forEachBook(Consumer<BookRecord> action) {
+        books.forEach((id, book) -> action.accept(book));
+    }
+
+    /*
+     * Восстановление состояния из снимка и журнала: изменения применяются без уведомления listener,
+     * счётчик идентификаторов подтягивается до максимального встреченного id.
+     */
+
+    void restoreUser(UserRecord user) {
+        advanceIdSequence(user.id());
+        users.put(user.id(), user);
+    }
+
+    void restoreUserRemoval(long id) {
+        removeUserWithBooks(id);
+    }
+
+    /**
+     * Книга пользователя, удалённого раньше по журналу, пропускается.
+     */
+    void restoreBook(BookRecord book) {
+        advanceIdSequence(book.id());
+        BookRecord previous = books.get(book.id());
+        if (previous != null && previous.userId() != book.userId()) {
+            unlinkBook(previous.userId(), previous.id());
+        }
+        bookIdsByUserId.compute(book.userId(), (userId, ids) -> {
+            if (!users.containsKey(userId)) {
+                return ids;
+            }
+            books.put(book.id(), book);
+            return append(ids, book.id());
+        });
+    }
+
+    void restoreBookRemoval(long id) {
+        BookRecord book = books.get(id);
+        if (book != null) {
+            unlinkBook(book.userId(), id);
+            books.remove(id);
+        }
+    }
+
+    void restoreIdSequence(long lastId) {
+        advanceIdSequence(lastId);
+    }
+
+    void clear() {
+        users.clear();
+        books.clear();
+        bookIdsByUserId.clear();
+        versionByUserId.clear();
+        idSequence.set(0);
+    }
+
+    private void advanceIdSequence(long id) {
+        idSequence.accumulateAndGet(id, Math::max);
+    }
+
+    private void unlinkBook(long userId, long bookId) {
+        bookIdsByUserId.compute(userId, (key, ids) -> {
+            if (ids == null) {
+                return null;
+            }
+            long[] result = remove(ids, bookId);
+            return result.length == 0 ? null : result;
+        });
+    }
+
+    /**
+     * Массивы id книг пользователя хранятся отсортированными, это даёт бинарный поиск и постраничную выборку.
+     */
+    private static long[] append(long[] ids, long id) {
+        if (ids == null) {
+            return new long[]{id};
+        }
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return ids;
+        }
+        int insertion = -index - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, insertion);
+        result[insertion] = id;
+        System.arraycopy(ids, insertion, result, insertion + 1, ids.length - insertion);
+        return result;
+    }
+
+    private static long[] merge(long[] ids, long[] sortedIds) {
+        if (sortedIds.length == 0) {
+            return ids;
+        }
+        if (ids.length == 0 || ids[ids.length - 1] < sortedIds[0]) {
+            long[] result = Arrays.copyOf(ids, ids.length + sortedIds.length);
+            System.arraycopy(sortedIds, 0, result, ids.length, sortedIds.length);
+            return result;
+        }
+        long[] result = ids;
+        for (long id : sortedIds) {
+            result = append(result, id);
+        }
+        return result;
+    }
+
+    private static long[] remove(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return ids;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        System.arraycopy(ids, index + 1, result, index, ids.length - index - 1);
+        return result;
+    }
+
+    @FunctionalInterface
+    interface PausedAction<T> {
+        T run() throws IOException;
+    }
 }
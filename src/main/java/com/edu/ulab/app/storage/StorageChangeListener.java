@@ -0,0 +1,28 @@
+package com.edu.ulab.app.storage;
+
+import java.util.List;
+
+/**
+ * Получает изменения {@link Storage} до того, как они применены к памяти.
+ * Исключение из метода отменяет изменение.
+ */
+public interface StorageChangeListener {
+    StorageChangeListener NOOP = new StorageChangeListener() {
+    };
+
+    default void userSaved(UserRecord user) {
+    }
+
+    default void userRemoved(long id) {
+    }
+
+    default void bookSaved(BookRecord book) {
+    }
+
+    default void booksSaved(List<BookRecord> books) {
+        books.forEach(this::bookSaved);
+    }
+
+    default void bookRemoved(long id) {
+    }
+}
@@ -0,0 +1,218 @@
+package com.edu.ulab.app.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only журнал изменений хранилища (write-ahead log).
+ * <p>
+ * Каждое изменение пишется кадром {@code [length:int][crc32c:int][record]} через {@link FileChannel}.
+ * Запись возвращается только после fsync, но fsync групповой: поток, дождавшийся {@code syncLock},
+ * сбрасывает на диск всё записанное к этому моменту, и остальные ожидающие потоки выходят без своего fsync.
+ */
+final class StorageJournal implements StorageChangeListener, Closeable {
+    static final int FRAME_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final Object syncLock = new Object();
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private volatile FileChannel channel;
+    private long generation;
+    private volatile long writtenPosition;
+    private volatile long syncedPosition;
+    private volatile long recordCount;
+    private volatile long syncCount;
+
+    StorageJournal(Path directory, long generation) throws IOException {
+        this.directory = directory;
+        open(generation);
+    }
+
+    static Path file(Path directory, long generation) {
+        return directory.resolve(String.format("journal-%019d.log", generation));
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    long recordCount() {
+        return recordCount;
+    }
+
+    long syncCount() {
+        return syncCount;
+    }
+
+    @Override
+    public void userSaved(UserRecord user) {
+        append(StorageRecordCodec.userSize(user), buffer -> StorageRecordCodec.writeUser(buffer, user));
+    }
+
+    @Override
+    public void userRemoved(long id) {
+        append(StorageRecordCodec.removalSize(), buffer -> StorageRecordCodec.writeUserRemoval(buffer, id));
+    }
+
+    @Override
+    public void bookSaved(BookRecord book) {
+        append(StorageRecordCodec.bookSize(book), buffer -> StorageRecordCodec.writeBook(buffer, book));
+    }
+
+    @Override
+    public void booksSaved(List<BookRecord> books) {
+        long position;
+        synchronized (this) {
+            for (BookRecord book : books) {
+                writeFrame(StorageRecordCodec.bookSize(book), buffer -> StorageRecordCodec.writeBook(buffer, book));
+            }
+            position = flush();
+        }
+        awaitDurable(position);
+    }
+
+    @Override
+    public void bookRemoved(long id) {
+        append(StorageRecordCodec.removalSize(), buffer -> StorageRecordCodec.writeBookRemoval(buffer, id));
+    }
+
+    /**
+     * Закрывает текущий файл журнала и начинает следующее поколение. Возвращает номер нового поколения.
+     */
+    synchronized long rotate() throws IOException {
+        synchronized (syncLock) {
+            channel.force(false);
+            syncedPosition = writtenPosition;
+            channel.close();
+            open(generation + 1);
+            return generation;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        synchronized (syncLock) {
+            channel.force(false);
+            syncedPosition = writtenPosition;
+            channel.close();
+        }
+    }
+
+    /**
+     * Применяет к хранилищу все целые кадры, начиная с текущей позиции reader.
+     * Чтение останавливается на первом недописанном или повреждённом кадре.
+     */
+    static ReplayResult replay(MappedFileReader reader, Storage storage) throws IOException {
+        CRC32C checksum = new CRC32C();
+        long records = 0;
+        long validLength = reader.position();
+        while (true) {
+            ByteBuffer header = reader.next(FRAME_HEADER_SIZE);
+            if (header == null) {
+                break;
+            }
+            int length = header.getInt();
+            int expectedCrc = header.getInt();
+            ByteBuffer body = length > 0 ? reader.next(length) : null;
+            if (body == null) {
+                break;
+            }
+            checksum.reset();
+            checksum.update(body.duplicate());
+            if ((int) checksum.getValue() != expectedCrc) {
+                break;
+            }
+            StorageRecordCodec.apply(body, storage);
+            validLength = reader.position();
+            records++;
+        }
+        return new ReplayResult(records, validLength);
+    }
+
+    record ReplayResult(long records, long validLength) {
+    }
+
+    private void append(int recordSize, Consumer<ByteBuffer> encoder) {
+        long position;
+        synchronized (this) {
+            writeFrame(recordSize, encoder);
+            position = flush();
+        }
+        awaitDurable(position);
+    }
+
+    private void writeFrame(int recordSize, Consumer<ByteBuffer> encoder) {
+        int frameSize = FRAME_HEADER_SIZE + recordSize;
+        if (buffer.remaining() < frameSize) {
+            flush();
+            if (buffer.capacity() < frameSize) {
+                buffer = ByteBuffer.allocate(frameSize);
+            }
+        }
+        encodeFrame(buffer, crc, recordSize, encoder);
+        recordCount++;
+    }
+
+    /**
+     * Кодирует кадр в heap-буфер с текущей позиции.
+     */
+    static void encodeFrame(ByteBuffer buffer, CRC32C crc, int recordSize, Consumer<ByteBuffer> encoder) {
+        int start = buffer.position();
+        buffer.position(start + FRAME_HEADER_SIZE);
+        encoder.accept(buffer);
+
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + start + FRAME_HEADER_SIZE, recordSize);
+        buffer.putInt(start, recordSize);
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    private long flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                writtenPosition += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write storage journal", e);
+        } finally {
+            buffer.clear();
+        }
+        return writtenPosition;
+    }
+
+    private void awaitDurable(long position) {
+        if (syncedPosition >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedPosition >= position) {
+                return;
+            }
+            long target = writtenPosition;
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to sync storage journal", e);
+            }
+            syncedPosition = target;
+            syncCount++;
+        }
+    }
+
+    private void open(long generation) throws IOException {
+        this.generation = generation;
+        this.channel = FileChannel.open(file(directory, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
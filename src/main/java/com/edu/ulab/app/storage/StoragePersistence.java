@@ -0,0 +1,142 @@
+package com.edu.ulab.app.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Персистентность in-memory {@link Storage}: журнал изменений, периодические снимки и восстановление при старте.
+ * <p>
+ * При старте загружается последний снимок и проигрываются только журналы его поколения и новее.
+ * Снимок делается так: журнал переключается на новое поколение G, состояние памяти пишется в snapshot-G,
+ * после чего журналы и снимки старше G удаляются. Переключение идёт при остановленных записях
+ * ({@link Storage#withWritesPaused}), поэтому всё, что попало в журналы старше G, уже применено к памяти и есть в снимке. Повторное применение записей журнала поверх снимка безопасно,
+ * так как каждая запись - это полное состояние или удаление по id.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.storage.persistence.enabled", havingValue = "true")
+public class StoragePersistence {
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.snap");
+
+    private final Storage storage;
+    private final Path directory;
+    private StorageJournal journal;
+    private long lastSnapshotNanos;
+    private long lastSnapshotRecords;
+
+    public StoragePersistence(Storage storage,
+                              @Value("${app.storage.persistence.directory:data/storage}") String directory) {
+        this.storage = storage;
+        this.directory = Paths.get(directory);
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+
+        long snapshotGeneration = generations(SNAPSHOT_FILE).stream().reduce((first, second) -> second).orElse(0L);
+        if (snapshotGeneration > 0) {
+            StorageSnapshot.Summary summary = StorageSnapshot.load(StorageSnapshot.file(directory, snapshotGeneration), storage);
+            log.info("Storage snapshot {} loaded: users {}, books {}, {} bytes",
+                    summary.generation(), summary.users(), summary.books(), summary.bytes());
+        }
+
+        long lastGeneration = snapshotGeneration;
+        long replayed = 0;
+        for (long generation : generations(JOURNAL_FILE)) {
+            if (generation < snapshotGeneration) {
+                continue;
+            }
+            Path file = StorageJournal.file(directory, generation);
+            StorageJournal.ReplayResult result;
+            try (MappedFileReader reader = new MappedFileReader(file)) {
+                result = StorageJournal.replay(reader, storage);
+            }
+            if (result.validLength() < Files.size(file)) {
+                log.warn("Storage journal {} has a torn tail, truncating to {} bytes", file, result.validLength());
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(result.validLength());
+                }
+            }
+            replayed += result.records();
+            lastGeneration = generation;
+        }
+
+        journal = new StorageJournal(directory, lastGeneration + 1);
+        storage.setChangeListener(journal);
+        lastSnapshotNanos = System.nanoTime();
+
+        log.info("Storage recovered in {} ms: {} journal records replayed, users {}, books {}, last id {}",
+                (System.nanoTime() - start) / 1_000_000, replayed,
+                storage.userCount(), storage.bookCount(), storage.lastId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.persistence.snapshot-interval:PT10M}",
+            initialDelayString = "${app.storage.persistence.snapshot-interval:PT10M}")
+    public synchronized void snapshot() throws IOException {
+        long records = journal.recordCount() - lastSnapshotRecords;
+        long syncs = journal.syncCount();
+        double seconds = (System.nanoTime() - lastSnapshotNanos) / 1e9;
+
+        long start = System.nanoTime();
+        long generation = storage.withWritesPaused(journal::rotate);
+        StorageSnapshot.Summary summary = StorageSnapshot.write(directory, generation, storage);
+        deleteOlderThan(generation);
+
+        lastSnapshotRecords += records;
+        lastSnapshotNanos = System.nanoTime();
+        log.info("Storage snapshot {} written in {} ms: users {}, books {}, {} bytes",
+                generation, (lastSnapshotNanos - start) / 1_000_000,
+                summary.users(), summary.books(), summary.bytes());
+        log.info("Storage journal since previous snapshot: {} records, {} records/s, {} fsyncs in total",
+                records, Math.round(records / Math.max(seconds, 1e-3)), syncs);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        storage.setChangeListener(StorageChangeListener.NOOP);
+        journal.close();
+    }
+
+    private void deleteOlderThan(long generation) throws IOException {
+        for (long old : generations(JOURNAL_FILE)) {
+            if (old < generation) {
+                Files.deleteIfExists(StorageJournal.file(directory, old));
+            }
+        }
+        for (long old : generations(SNAPSHOT_FILE)) {
+            if (old < generation) {
+                Files.deleteIfExists(StorageSnapshot.file(directory, old));
+            }
+        }
+    }
+
+    private List<Long> generations(Pattern pattern) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(file -> pattern.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
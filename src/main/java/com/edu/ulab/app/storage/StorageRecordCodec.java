@@ -0,0 +1,103 @@
+package com.edu.ulab.app.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Бинарный формат записей журнала и снимка хранилища: {@code [type:byte][payload]}.
+ */
+final class StorageRecordCodec {
+    static final byte USER_SAVED = 1;
+    static final byte USER_REMOVED = 2;
+    static final byte BOOK_SAVED = 3;
+    static final byte BOOK_REMOVED = 4;
+
+    private StorageRecordCodec() {
+    }
+
+    static void writeUser(ByteBuffer buffer, UserRecord user) {
+        buffer.put(USER_SAVED);
+        buffer.putLong(user.id());
+        buffer.putInt(user.age());
+        writeString(buffer, user.fullName());
+        writeString(buffer, user.title());
+    }
+
+    static void writeUserRemoval(ByteBuffer buffer, long id) {
+        buffer.put(USER_REMOVED);
+        buffer.putLong(id);
+    }
+
+    static void writeBook(ByteBuffer buffer, BookRecord book) {
+        buffer.put(BOOK_SAVED);
+        buffer.putLong(book.id());
+        buffer.putLong(book.userId());
+        buffer.putLong(book.pageCount());
+        writeString(buffer, book.title());
+        writeString(buffer, book.author());
+    }
+
+    static void writeBookRemoval(ByteBuffer buffer, long id) {
+        buffer.put(BOOK_REMOVED);
+        buffer.putLong(id);
+    }
+
+    static int userSize(UserRecord user) {
+        return 1 + Long.BYTES + Integer.BYTES + stringSize(user.fullName()) + stringSize(user.title());
+    }
+
+    static int bookSize(BookRecord book) {
+        return 1 + 3 * Long.BYTES + stringSize(book.title()) + stringSize(book.author());
+    }
+
+    static int removalSize() {
+        return 1 + Long.BYTES;
+    }
+
+    /**
+     * Читает одну запись из буфера и применяет её к хранилищу.
+     */
+    static void apply(ByteBuffer buffer, Storage storage) {
+        byte type = buffer.get();
+        switch (type) {
+            case USER_SAVED -> {
+                long id = buffer.getLong();
+                int age = buffer.getInt();
+                storage.restoreUser(new UserRecord(id, readString(buffer), readString(buffer), age));
+            }
+            case USER_REMOVED -> storage.restoreUserRemoval(buffer.getLong());
+            case BOOK_SAVED -> {
+                long id = buffer.getLong();
+                long userId = buffer.getLong();
+                long pageCount = buffer.getLong();
+                storage.restoreBook(new BookRecord(id, userId, readString(buffer), readString(buffer), pageCount));
+            }
+            case BOOK_REMOVED -> storage.restoreBookRemoval(buffer.getLong());
+            default -> throw new IllegalStateException("Unknown storage record type " + type);
+        }
+    }
+
+    private static int stringSize(String value) {
+        return Integer.BYTES + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
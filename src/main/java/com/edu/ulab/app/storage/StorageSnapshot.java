@@ -0,0 +1,114 @@
+package com.edu.ulab.app.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Компактный снимок хранилища в memory-mapped файле.
+ * <p>
+ * Формат: заголовок {@code [magic][version][generation][lastId][users][books]}, затем кадры в формате журнала -
+ * сначала все пользователи, потом все книги. Файл пишется во временный и переименовывается атомарно.
+ */
+final class StorageSnapshot {
+    private static final int MAGIC = 0x554C5353;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + 4 * Long.BYTES;
+
+    private StorageSnapshot() {
+    }
+
+    static Path file(Path directory, long generation) {
+        return directory.resolve(String.format("snapshot-%019d.snap", generation));
+    }
+
+    static Summary write(Path directory, long generation, Storage storage) throws IOException {
+        Path target = file(directory, generation);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long lastId = storage.lastId();
+        FrameWriter frames;
+        try (MappedFileWriter writer = new MappedFileWriter(temporary)) {
+            writer.skip(HEADER_SIZE);
+            frames = new FrameWriter(writer);
+            try {
+                storage.forEachUser(user ->
+                        frames.write(StorageRecordCodec.userSize(user), buffer -> StorageRecordCodec.writeUser(buffer, user)));
+                long users = frames.count;
+                storage.forEachBook(book ->
+                        frames.write(StorageRecordCodec.bookSize(book), buffer -> StorageRecordCodec.writeBook(buffer, book)));
+                frames.users = users;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(generation)
+                    .putLong(lastId)
+                    .putLong(frames.users)
+                    .putLong(frames.count - frames.users)
+                    .flip();
+            writer.channel().write(header, 0);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new Summary(generation, frames.users, frames.count - frames.users, Files.size(target));
+    }
+
+    static Summary load(Path file, Storage storage) throws IOException {
+        try (MappedFileReader reader = new MappedFileReader(file)) {
+            ByteBuffer header = reader.next(HEADER_SIZE);
+            if (header == null || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalStateException("Storage snapshot " + file + " has unsupported format");
+            }
+            long generation = header.getLong();
+            long lastId = header.getLong();
+            long users = header.getLong();
+            long books = header.getLong();
+
+            StorageJournal.ReplayResult result = StorageJournal.replay(reader, storage);
+            if (result.records() != users + books) {
+                throw new IllegalStateException("Storage snapshot " + file + " is incomplete: "
+                        + result.records() + " of " + (users + books) + " records");
+            }
+            storage.restoreIdSequence(lastId);
+            return new Summary(generation, users, books, reader.size());
+        }
+    }
+
+    record Summary(long generation, long users, long books, long bytes) {
+    }
+
+    private static final class FrameWriter {
+        private final MappedFileWriter writer;
+        private final CRC32C crc = new CRC32C();
+        private ByteBuffer scratch = ByteBuffer.allocate(4096);
+        private long count;
+        private long users;
+
+        FrameWriter(MappedFileWriter writer) {
+            this.writer = writer;
+        }
+
+        void write(int recordSize, Consumer<ByteBuffer> encoder) {
+            int frameSize = StorageJournal.FRAME_HEADER_SIZE + recordSize;
+            if (scratch.capacity() < frameSize) {
+                scratch = ByteBuffer.allocate(frameSize);
+            }
+            scratch.clear();
+            StorageJournal.encodeFrame(scratch, crc, recordSize, encoder);
+            scratch.flip();
+            try {
+                writer.reserve(frameSize).put(scratch);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.edu.ulab.app.storage;
+
+/**
+ * Неизменяемая запись пользователя в хранилище. {@code id == 0} означает, что идентификатор ещё не присвоен.
+ */
+public record UserRecord(long id, String fullName, String title, int age) {
+
+    public UserRecord withId(long id) {
+        return new UserRecord(id, fullName, title, age);
+    }
+}
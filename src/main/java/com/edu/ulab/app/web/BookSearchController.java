@@ -0,0 +1,45 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.search.BookSearchIndex;
+import com.edu.ulab.app.search.BookSearchResult;
+import com.edu.ulab.app.web.constant.WebConstant;
+import com.edu.ulab.app.web.response.BookSearchResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Поиск книг по подстроке названия или автора. Запрос обслуживается индексом в памяти без обращения к базе,
+ * поэтому выполняется прямо в потоке запроса, а не через пул {@code DatabaseCallExecutor}.
+ */
+@Slf4j
+@RestController
+@RequestMapping(value = WebConstant.VERSION_URL + "/book",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, WebConstant.APPLICATION_SMILE_VALUE})
+public class BookSearchController {
+    private final BookSearchIndex bookSearchIndex;
+
+    public BookSearchController(BookSearchIndex bookSearchIndex) {
+        this.bookSearchIndex = bookSearchIndex;
+    }
+
+    @GetMapping(value = "/search")
+    @Operation(summary = "Books whose title or author contains the query (at least 3 characters), best matches first.")
+    public BookSearchResponse searchBooks(@RequestParam("q") String query,
+                                          @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "20") int size) {
+        BookSearchResult result = bookSearchIndex.search(query, page, size);
+        log.info("Book search: query '{}', page {}, found {}", query, page, result.total());
+        return BookSearchResponse.builder()
+                .query(query)
+                .page(page)
+                .size(Math.min(Math.max(size, 1), BookSearchIndex.MAX_PAGE_SIZE))
+                .total(result.total())
+                .books(result.hits())
+                .build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.edu.ulab.app.web;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * ETag пользователя с книгами: {@code W/"<userId>-<version>"}. Версия растёт при любом изменении пользователя
+ * или его книг, поэтому совпадение тега означает, что у клиента актуальные данные.
+ * <p>
+ * Тег слабый: один и тот же тег отдаётся для JSON, CBOR и Smile и для сжатого тела, а сильный тег
+ * Tomcat не сжимает ({@code noCompressionStrongETag}).
+ */
+@UtilityClass
+public class EntityTags {
+    private static final String WEAK_PREFIX = "W/";
+
+    public static String userBooks(long userId, long version) {
+        return WEAK_PREFIX + "\"" + userId + "-" + version + "\"";
+    }
+
+    /**
+     * Слабое сравнение для {@code If-None-Match} (RFC 7232): список тегов через запятую, {@code *} или один тег.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        String opaqueTag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = stripWeakPrefix(candidate.strip());
+            if (tag.equals("*") || tag.equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix(String tag) {
+        return tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag;
+    }
+}
@@ -1,63 +1,204 @@
 package com.edu.ulab.app.web;
 
+import com.edu.ulab.app.facade.DatabaseCallExecutor;
+import com.edu.ulab.app.facade.ExportFormat;
+import com.edu.ulab.app.facade.OptimisticLockRetrier;
+import com.edu.ulab.app.facade.RequestDeduplicator;
+import com.edu.ulab.app.facade.UserBookExporter;
+import com.edu.ulab.app.facade.UserBookImporter;
 import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.facade.UserUpdateCoalescer;
 import com.edu.ulab.app.web.constant.WebConstant;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.BookPageResponse;
+import com.edu.ulab.app.web.response.ImportSummaryResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBookStatsResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.constraints.Pattern;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import static com.edu.ulab.app.logging.LogMarkers.PAYLOAD;
 import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
 import static com.edu.ulab.app.web.constant.WebConstant.RQID;
 
 @Slf4j
 @RestController
 @RequestMapping(value = WebConstant.VERSION_URL + "/user",
-        produces = MediaType.APPLICATION_JSON_VALUE)
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, WebConstant.APPLICATION_SMILE_VALUE})
 public class UserController {
+    private static final int MAX_BULK_DELETE_SIZE = 1000;
+
     private final UserDataFacade userDataFacade;
+    private final UserBookImporter userBookImporter;
+    private final UserBookExporter userBookExporter;
+    private final DatabaseCallExecutor databaseCallExecutor;
+    private final UserUpdateCoalescer userUpdateCoalescer;
+    private final OptimisticLockRetrier optimisticLockRetrier;
+    private final RequestDeduplicator requestDeduplicator;
 
-    public UserController(UserDataFacade userDataFacade) {
+    public UserController(UserDataFacade userDataFacade,
+                          UserBookImporter userBookImporter,
+                          UserBookExporter userBookExporter,
+                          DatabaseCallExecutor databaseCallExecutor,
+                          UserUpdateCoalescer userUpdateCoalescer,
+                          OptimisticLockRetrier optimisticLockRetrier,
+                          RequestDeduplicator requestDeduplicator) {
         this.userDataFacade = userDataFacade;
+        this.userBookImporter = userBookImporter;
+        this.userBookExporter = userBookExporter;
+        this.databaseCallExecutor = databaseCallExecutor;
+        this.userUpdateCoalescer = userUpdateCoalescer;
+        this.optimisticLockRetrier = optimisticLockRetrier;
+        this.requestDeduplicator = requestDeduplicator;
     }
 
+    /**
+     * {@code rqid} - ключ идемпотентности: повтор с тем же значением получает ответ первого запроса без записи.
+     */
     @PostMapping(value = "/create")
-    @Operation(summary = "Create user book row.",
+    @Operation(summary = "Create user book row. A retry with the same rqid returns the original response.",
             responses = {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
-    public UserBookResponse createUserWithBooks(@RequestBody UserBookRequest request,
-                                                @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
-        UserBookResponse response = userDataFacade.createUserWithBooks(request);
-        log.info("Response with created user and his books: {}", response);
-        return response;
+    public CompletableFuture<UserBookResponse> createUserWithBooks(@RequestBody UserBookRequest request,
+                                                                   @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
+        Optional<UserBookResponse> completed = requestDeduplicator.findCompleted(requestId, request);
+        if (completed.isPresent()) {
+            return CompletableFuture.completedFuture(completed.get());
+        }
+        return databaseCallExecutor.submit(() -> {
+            UserBookResponse response = requestDeduplicator.createUserWithBooks(requestId, request);
+            log.info(PAYLOAD, "Response with created user and his books: {}", response);
+            return response;
+        });
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Import users with books from NDJSON, one UserBookRequest per line.",
+            responses = {
+                    @ApiResponse(description = "Import summary",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = ImportSummaryResponse.class)))})
+    public ImportSummaryResponse importUsersWithBooks(InputStream body) throws IOException {
+        try (DatabaseCallExecutor.BulkPermit permit = databaseCallExecutor.acquireBulkPermit()) {
+            ImportSummaryResponse response = userBookImporter.importUsersWithBooks(body);
+            log.info("Import summary: {}", response);
+            return response;
+        }
+    }
+
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    @Operation(summary = "Export all users with books as JSON lines or CSV.")
+    public ResponseEntity<StreamingResponseBody> exportUsersWithBooks(@RequestParam(defaultValue = "JSONL") ExportFormat format) {
+        log.info("Export users with books: format {}", format);
+        DatabaseCallExecutor.BulkPermit permit = databaseCallExecutor.acquireBulkPermit();
+        StreamingResponseBody body = outputStream -> {
+            try (permit) {
+                userBookExporter.export(format, outputStream);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users." + format.getExtension())
+                .body(body);
     }
 
     @PutMapping(value = "/update")
-    public UserBookResponse updateUserWithBooks(@RequestBody UserBookRequest request) {
-        UserBookResponse response = userDataFacade.updateUserWithBooks(request);
-        log.info("Response with updated user and his books: {}", response);
-        return response;
+    public CompletableFuture<UserBookResponse> updateUserWithBooks(@RequestBody UserBookRequest request) {
+        CompletableFuture<UserBookResponse> response = userUpdateCoalescer.isEnabled()
+                ? userUpdateCoalescer.submit(request)
+                : databaseCallExecutor.submit(() -> optimisticLockRetrier.execute(() -> userDataFacade.updateUserWithBooks(request)));
+        return response.thenApply(updated -> {
+            log.info(PAYLOAD, "Response with updated user and his books: {}", updated);
+            return updated;
+        });
     }
 
+    /**
+     * С {@code If-None-Match} сначала читается только версия пользователя: при совпадении тега ответ 304
+     * без загрузки книг. ETag ответа 200 берётся из версии, с которой собрано тело.
+     */
     @GetMapping(value = "/get/{userId}")
-    public UserBookResponse updateUserWithBooks(@PathVariable Long userId) {
-        UserBookResponse response = userDataFacade.getUserWithBooks(userId);
-        log.info("Response with user and his books: {}", response);
-        return response;
+    @Operation(summary = "User with book ids. Send the ETag back in If-None-Match to get 304 while nothing has changed.")
+    public CompletableFuture<ResponseEntity<UserBookResponse>> getUserWithBooks(
+            @PathVariable Long userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return databaseCallExecutor.submit(() -> {
+            if (ifNoneMatch != null) {
+                String etag = EntityTags.userBooks(userId, userDataFacade.getUserVersion(userId));
+                if (EntityTags.matches(ifNoneMatch, etag)) {
+                    log.info("User {} not modified", userId);
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                            .eTag(etag)
+                            .cacheControl(CacheControl.noCache())
+                            .varyBy(HttpHeaders.ACCEPT)
+                            .build();
+                }
+            }
+            UserBookResponse response = userDataFacade.getUserWithBooks(userId);
+            log.info(PAYLOAD, "Response with user and his books: {}", response);
+            return ResponseEntity.ok()
+                    .eTag(EntityTags.userBooks(userId, response.getVersion()))
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(response);
+        });
+    }
+
+    @GetMapping(value = "/get/{userId}/books")
+    @Operation(summary = "Page of user books ordered by id. Pass nextAfterId of the previous page as afterId.")
+    public CompletableFuture<BookPageResponse> getUserBooksPage(@PathVariable Long userId,
+                                                                @RequestParam(required = false) Long afterId,
+                                                                @RequestParam(defaultValue = "100") int limit) {
+        return databaseCallExecutor.submit(() -> {
+            BookPageResponse response = userDataFacade.getUserBooksPage(userId, afterId, limit);
+            log.info("Response with user books page: userId {}, books {}, nextAfterId {}",
+                    userId, response.getBooks().size(), response.getNextAfterId());
+            return response;
+        });
+    }
+
+    @GetMapping(value = "/get/{userId}/stats")
+    @Operation(summary = "Book count and total pages of the user, read from counters kept on the user row.")
+    public CompletableFuture<UserBookStatsResponse> getUserBookStats(@PathVariable Long userId) {
+        return databaseCallExecutor.submit(() -> {
+            UserBookStatsResponse response = userDataFacade.getUserBookStats(userId);
+            log.info("Response with user book stats: {}", response);
+            return response;
+        });
+    }
+
+    @PostMapping(value = "/delete/bulk")
+    @Operation(summary = "Delete many users with their books. Large book sets are purged in the background.")
+    public CompletableFuture<Void> deleteUsersWithBooks(@RequestBody List<Long> userIds) {
+        if (userIds.size() > MAX_BULK_DELETE_SIZE) {
+            throw new IllegalArgumentException("Too many user ids: " + userIds.size() + ", max " + MAX_BULK_DELETE_SIZE);
+        }
+        log.info("Delete users and their books: {} users", userIds.size());
+        return databaseCallExecutor.run(() -> userDataFacade.deleteUsersWithBooks(userIds));
     }
 
     @DeleteMapping(value = "/delete/{userId}")
-    public void deleteUserWithBooks(@PathVariable Long userId) {
+    public CompletableFuture<Void> deleteUserWithBooks(@PathVariable Long userId) {
         log.info("Delete user and his books:  userId {}", userId);
-        userDataFacade.deleteUserWithBooks(userId);
+        return databaseCallExecutor.run(() -> userDataFacade.deleteUserWithBooks(userId));
     }
 }
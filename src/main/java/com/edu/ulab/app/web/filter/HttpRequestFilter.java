@@ -5,12 +5,18 @@ import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
+/**
+ * Кладёт {@code rqid} в MDC и пишет одну строку итога на запрос в формате key=value.
+ * Для асинхронных ответов итог пишется по завершении, а не при выходе из фильтра.
+ */
 @Slf4j
 @Component
 public class HttpRequestFilter extends OncePerRequestFilter {
@@ -19,12 +25,47 @@ public class HttpRequestFilter extends OncePerRequestFilter {
                                     final HttpServletResponse response,
                                     final FilterChain filterChain) throws ServletException, IOException {
         String requestId = request.getHeader("rqid");
+        long start = System.nanoTime();
         MDC.put("requestId", requestId);
-        log.info("RequestId : {}", requestId);
         try {
             filterChain.doFilter(request, response);
         } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new SummaryListener(requestId, request, response, start));
+            } else {
+                logSummary(requestId, request, response, start);
+            }
             MDC.remove("requestId");
         }
     }
+
+    private static void logSummary(String requestId, HttpServletRequest request, HttpServletResponse response, long start) {
+        if (log.isInfoEnabled()) {
+            log.info("request rqid={} method={} uri={} status={} durationMs={}",
+                    requestId, request.getMethod(), request.getRequestURI(), response.getStatus(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private record SummaryListener(String requestId,
+                                   HttpServletRequest request,
+                                   HttpServletResponse response,
+                                   long start) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            logSummary(requestId, request, response, start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
 }
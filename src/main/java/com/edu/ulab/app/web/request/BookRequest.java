@@ -4,6 +4,10 @@ import lombok.Data;
 
 @Data
 public class BookRequest {
+    /**
+     * Задаётся при обновлении, чтобы сослаться на существующую книгу. При создании игнорируется.
+     */
+    private Long id;
     private String title;
     private String author;
     private long pageCount;
@@ -0,0 +1,17 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BookPageResponse {
+    private Long userId;
+    private List<BookResponse> books;
+    /**
+     * Значение {@code afterId} для следующей страницы, {@code null} если страница последняя.
+     */
+    private Long nextAfterId;
+}
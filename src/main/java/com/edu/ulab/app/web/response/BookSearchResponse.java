@@ -0,0 +1,20 @@
+package com.edu.ulab.app.web.response;
+
+import com.edu.ulab.app.search.BookSearchHit;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BookSearchResponse {
+    private String query;
+    private int page;
+    private int size;
+    /**
+     * Сколько всего книг подходит под запрос, по всем страницам.
+     */
+    private int total;
+    private List<BookSearchHit> books;
+}
@@ -0,0 +1,23 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportSummaryResponse {
+    private long received;
+    private long usersCreated;
+    private long booksCreated;
+    private long failed;
+    private List<ImportFailure> failures = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    public static class ImportFailure {
+        private long line;
+        private String errorMessage;
+    }
+}
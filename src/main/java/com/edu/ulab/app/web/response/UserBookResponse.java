@@ -1,5 +1,8 @@
 package com.edu.ulab.app.web.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
@@ -9,5 +12,29 @@ import java.util.List;
 @Builder
 public class UserBookResponse {
     private Long userId;
+    /**
+     * Не заполняется в ответе на обновление без списка книг: книги тогда не меняются и не читаются.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<Long> booksIdList;
+    /**
+     * Что изменилось в книгах при обновлении, в остальных ответах не заполняется.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BookChanges bookChanges;
+    /**
+     * Версия пользователя, из которой собран ответ. Отдаётся в ETag, а не в теле, и хранится вместе
+     * с ответом в кэше, поэтому тег всегда соответствует телу.
+     */
+    @JsonIgnore
+    private Long version;
+
+    @Data
+    @AllArgsConstructor
+    public static class BookChanges {
+        private int inserted;
+        private int updated;
+        private int deleted;
+        private int unchanged;
+    }
 }
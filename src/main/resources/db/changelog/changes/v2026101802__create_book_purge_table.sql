@@ -0,0 +1,10 @@
+create table ulab_edu.book_purge
+(
+    person_id    bigint    not null,
+    requested_at timestamp not null default now(),
+    constraint pk_ulab_edu_book_purge_person_id primary key (person_id)
+);
+
+comment on table ulab_edu.book_purge is 'Очередь фоновой очистки книг удалённых пользователей';
+comment on column ulab_edu.book_purge.person_id is 'Идентификатор удалённого пользователя';
+comment on column ulab_edu.book_purge.requested_at is 'Время постановки в очередь';
@@ -0,0 +1,13 @@
+alter table ulab_edu.person add column book_count bigint not null default 0;
+alter table ulab_edu.person add column page_total bigint not null default 0;
+
+update ulab_edu.person p
+set book_count = t.book_count,
+    page_total = t.page_total
+from (select person_id, count(*) as book_count, sum(page_count) as page_total
+      from ulab_edu.book
+      group by person_id) t
+where p.id = t.person_id;
+
+comment on column ulab_edu.person.book_count is 'Количество книг пользователя, поддерживается приложением';
+comment on column ulab_edu.person.page_total is 'Сумма страниц книг пользователя, поддерживается приложением';
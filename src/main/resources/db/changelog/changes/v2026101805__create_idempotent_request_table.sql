@@ -0,0 +1,18 @@
+create table ulab_edu.idempotent_request
+(
+    request_id   varchar(128) not null,
+    request_hash varchar(64)  not null,
+    user_id      bigint,
+    book_ids     bigint[],
+    created_at   timestamp    not null default now(),
+    constraint pk_ulab_edu_idempotent_request_request_id primary key (request_id)
+);
+
+create index idx_ulab_edu_idempotent_request_created_at on ulab_edu.idempotent_request (created_at);
+
+comment on table ulab_edu.idempotent_request is 'Выполненные запросы создания по rqid для ответа на повторы';
+comment on column ulab_edu.idempotent_request.request_id is 'Значение заголовка rqid';
+comment on column ulab_edu.idempotent_request.request_hash is 'SHA-256 канонического JSON тела запроса в hex, повтор с другим телом отклоняется';
+comment on column ulab_edu.idempotent_request.user_id is 'Созданный пользователь';
+comment on column ulab_edu.idempotent_request.book_ids is 'Созданные книги в порядке ответа';
+comment on column ulab_edu.idempotent_request.created_at is 'Время выполнения, по нему удаляются устаревшие записи';
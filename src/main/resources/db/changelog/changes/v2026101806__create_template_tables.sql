@@ -0,0 +1,44 @@
+-- таблицы JdbcTemplate-сервисов (app.service.backend=TEMPLATE) в схеме по умолчанию, как их ищут запросы без схемы;
+-- для встроенных баз те же таблицы создаёт schema.sql
+create table if not exists person
+(
+    id         bigint       not null,
+    full_name  varchar(255),
+    title      varchar(255),
+    age        integer,
+    book_count bigint       not null default 0,
+    page_total bigint       not null default 0,
+    version    bigint       not null default 0,
+    constraint pk_person_id primary key (id)
+);
+
+alter table person add column if not exists book_count bigint not null default 0;
+alter table person add column if not exists page_total bigint not null default 0;
+alter table person add column if not exists version bigint not null default 0;
+
+create table if not exists book
+(
+    id         bigint       not null,
+    title      varchar(255),
+    author     varchar(255),
+    page_count integer,
+    user_id    bigint,
+    constraint pk_book_id primary key (id)
+);
+
+create index if not exists idx_book_user_id_id on book (user_id, id);
+
+update person p
+set book_count = t.book_count,
+    page_total = t.page_total
+from (select user_id, count(*) as book_count, sum(page_count) as page_total
+      from book
+      group by user_id) t
+where p.id = t.user_id;
+
+comment on table person is 'Пользователи JdbcTemplate-сервисов';
+comment on column person.book_count is 'Количество книг пользователя, поддерживается приложением';
+comment on column person.page_total is 'Сумма страниц книг пользователя, поддерживается приложением';
+comment on column person.version is 'Версия строки для ETag';
+comment on table book is 'Книги JdbcTemplate-сервисов';
+comment on column book.user_id is 'Владелец, страницы книг читаются по индексу (user_id, id)';
@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+--changeset ulab:v2026101807-drop-book-person-foreign-key splitStatements:false
+--comment: внешний ключ book -> person, добавленный Hibernate (ddl-auto: update), не даёт удалить пользователя раньше, чем BookPurgeJob дочистит его книги
+do
+$$
+    declare
+        constraint_name text;
+    begin
+        for constraint_name in
+            select conname
+            from pg_constraint
+            where conrelid = 'ulab_edu.book'::regclass
+              and confrelid = 'ulab_edu.person'::regclass
+              and contype = 'f'
+            loop
+                execute format('alter table ulab_edu.book drop constraint %I', constraint_name);
+            end loop;
+    end
+$$;
@@ -4,7 +4,10 @@ CREATE TABLE IF NOT EXISTS PERSON
     ID BIGINT AUTO_INCREMENT PRIMARY KEY,
     FULL_NAME VARCHAR (255),
     TITLE VARCHAR (255),
-    AGE INTEGER
+    AGE INTEGER,
+    BOOK_COUNT BIGINT DEFAULT 0 NOT NULL,
+    PAGE_TOTAL BIGINT DEFAULT 0 NOT NULL,
+    VERSION BIGINT DEFAULT 0 NOT NULL
 );
 
 DROP TABLE IF EXISTS BOOK;
@@ -16,3 +19,5 @@ CREATE TABLE IF NOT EXISTS BOOK
     PAGE_COUNT INTEGER,
     USER_ID BIGINT
 );
+
+CREATE INDEX IF NOT EXISTS IDX_BOOK_USER_ID_ID ON BOOK (USER_ID, ID);
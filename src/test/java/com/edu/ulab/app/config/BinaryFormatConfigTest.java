@@ -0,0 +1,66 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование функционала {@link BinaryFormatConfig}.
+ */
+@UnitTest
+@DisplayName("Testing binary Jackson formats.")
+public class BinaryFormatConfigTest {
+    private final BinaryFormatConfig config = new BinaryFormatConfig();
+
+    @Test
+    @DisplayName("Запрос с книгами переживает запись и чтение в CBOR и Smile, бинарный вариант короче JSON.")
+    void roundTrip_Test() throws Exception {
+        //given
+        UserBookRequest request = userBookRequest();
+        byte[] json = Jackson2ObjectMapperBuilder.json().build().writeValueAsBytes(request);
+        List<AbstractJackson2HttpMessageConverter> converters = List.of(
+                config.cborHttpMessageConverter(Jackson2ObjectMapperBuilder.json()),
+                config.smileHttpMessageConverter(Jackson2ObjectMapperBuilder.json()));
+
+        for (AbstractJackson2HttpMessageConverter converter : converters) {
+            //when
+            MediaType mediaType = converter.getSupportedMediaTypes().get(0);
+            MockHttpOutputMessage output = new MockHttpOutputMessage();
+            converter.write(request, mediaType, output);
+            byte[] encoded = output.getBodyAsBytes();
+            Object decoded = converter.read(UserBookRequest.class, new MockHttpInputMessage(encoded));
+
+            //then
+            assertThat(output.getHeaders().getContentType()).isEqualTo(mediaType);
+            assertThat(decoded).isEqualTo(request);
+            assertThat(encoded.length).isLessThan(json.length);
+        }
+    }
+
+    private static UserBookRequest userBookRequest() {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("Test user");
+        userRequest.setTitle("reader");
+        userRequest.setAge(30);
+        BookRequest bookRequest = new BookRequest();
+        bookRequest.setTitle("Dune");
+        bookRequest.setAuthor("Herbert");
+        bookRequest.setPageCount(412);
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of(bookRequest, bookRequest));
+        return request;
+    }
+}
@@ -0,0 +1,44 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.impl.BookServiceImplStorage;
+import com.edu.ulab.app.storage.Storage;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование функционала {@link LayerMetricsAspect}.
+ */
+@UnitTest
+@DisplayName("Testing layer metrics.")
+public class LayerMetricsAspectTest {
+
+    @Test
+    @DisplayName("Вызов сервиса записывается в таймер с тегами слоя, операции и backend реализации.")
+    void timeService_Test() {
+        //given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(
+                new BookServiceImplStorage(new Storage(), Mappers.getMapper(BookMapper.class)));
+        proxyFactory.addAspect(new LayerMetricsAspect(meterRegistry, ServiceBackend.TEMPLATE));
+        BookService bookService = proxyFactory.getProxy();
+
+        //when
+        bookService.getBooksByUserId(1L);
+        bookService.getBooksByUserId(2L);
+
+        //then
+        Timer timer = meterRegistry.find(LayerMetricsAspect.LAYER_CALLS_METRIC)
+                .tags("layer", "service", "operation", "get", "backend", "STORAGE", "method", "getBooksByUserId")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,112 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.facade.ReadYourWritesTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Тестирование функционала {@link ReadWriteRoutingDataSource}.
+ */
+@UnitTest
+@DisplayName("Testing read/write datasource routing.")
+public class ReadWriteRoutingDataSourceTest {
+    @Mock
+    DataSource primary;
+
+    @Mock
+    DataSource replica;
+
+    @Mock
+    Connection primaryConnection;
+
+    @Mock
+    Connection replicaConnection;
+
+    @Mock
+    Statement statement;
+
+    JdbcTemplate jdbcTemplate;
+    DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        lenient().when(primary.getConnection()).thenReturn(primaryConnection);
+        lenient().when(replica.getConnection()).thenReturn(replicaConnection);
+        lenient().when(primaryConnection.createStatement()).thenReturn(statement);
+        lenient().when(replicaConnection.createStatement()).thenReturn(statement);
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(new ReadWriteRoutingDataSource(primary, replica));
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @Test
+    @DisplayName("Read-only транзакция берёт соединение реплики, пишущая - основной базы.")
+    void route_Test() throws SQLException {
+        //given
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        //when
+        readOnly.executeWithoutResult(status -> jdbcTemplate.execute("select 1"));
+
+        //then
+        verify(replica).getConnection();
+        verify(primary, never()).getConnection();
+
+        //when
+        readWrite.executeWithoutResult(status -> jdbcTemplate.execute("update person set age = 1"));
+
+        //then
+        verify(primary).getConnection();
+    }
+
+    @Test
+    @DisplayName("Чтение недавно изменённого пользователя идёт на основную базу, остальных - на реплику.")
+    void readYourWrites_Test() throws SQLException {
+        //given
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(true, Duration.ofMinutes(1), 100);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        //when
+        tracker.recordWrite(1L);
+        readOnly.executeWithoutResult(status -> tracker.read(1L, () -> {
+            jdbcTemplate.execute("select 1");
+            return null;
+        }));
+
+        //then
+        verify(primary).getConnection();
+        verify(replica, never()).getConnection();
+
+        //when
+        readOnly.executeWithoutResult(status -> tracker.read(2L, () -> {
+            jdbcTemplate.execute("select 1");
+            return null;
+        }));
+
+        //then
+        verify(replica).getConnection();
+    }
+}
@@ -0,0 +1,67 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование функционала {@link BookSetDiff}.
+ */
+@UnitTest
+@DisplayName("Testing book set diff.")
+public class BookSetDiffTest {
+
+    @Test
+    @DisplayName("Неизменённые книги пропускаются, изменённые и новые идут в upsert, лишние удаляются.")
+    void compute_Test() {
+        //given
+        List<BookDto> stored = List.of(
+                book(10L, "same", "author", 100),
+                book(11L, "changed", "author", 200),
+                book(12L, "by title", "author", 300),
+                book(13L, "removed", "author", 400));
+        BookDto changed = book(11L, "changed", "author", 250);
+        BookDto sameByTitle = book(null, "by title", "author", 300);
+        BookDto added = book(null, "added", "author", 500);
+
+        //when
+        BookSetDiff diff = BookSetDiff.compute(1L, stored,
+                List.of(book(10L, "same", "author", 100), changed, sameByTitle, added));
+
+        //then
+        assertThat(diff.upserts()).containsExactly(changed, added);
+        assertThat(diff.deletedIds()).containsExactly(13L);
+        assertThat(sameByTitle.getId()).isEqualTo(12L);
+        assertThat(added.getId()).isNull();
+        assertThat(diff.changes()).isEqualTo(new UserBookResponse.BookChanges(1, 1, 1, 2));
+    }
+
+    @Test
+    @DisplayName("Ссылка на чужую или несуществующую книгу. Должно выбросить исключение.")
+    void compute_unknownBookId_Test() {
+        //given
+        List<BookDto> stored = List.of(book(10L, "same", "author", 100));
+
+        //then
+        assertThatThrownBy(() -> BookSetDiff.compute(1L, stored, List.of(book(99L, "other", "author", 1))))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    private static BookDto book(Long id, String title, String author, long pageCount) {
+        BookDto book = new BookDto();
+        book.setId(id);
+        book.setUserId(1L);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setPageCount(pageCount);
+        return book;
+    }
+}
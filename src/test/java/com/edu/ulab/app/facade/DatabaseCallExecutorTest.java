@@ -0,0 +1,93 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование функционала {@link DatabaseCallExecutor}.
+ */
+@UnitTest
+@DisplayName("Testing database call executor.")
+public class DatabaseCallExecutorTest {
+
+    @Test
+    @DisplayName("Запрос сверх пула и очереди сразу отклоняется, принятые запросы выполняются.")
+    void submit_rejectsWhenQueueIsFull_Test() throws Exception {
+        //given
+        DatabaseCallExecutor executor = new DatabaseCallExecutor(true, 5, 4, 2, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        //when
+        CompletableFuture<String> running = executor.submit(() -> {
+            started.countDown();
+            await(release);
+            return "running";
+        });
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> queued = executor.submit(() -> "queued");
+
+        //then
+        assertThat(executor.queueDepth()).isEqualTo(1);
+        assertThatThrownBy(() -> executor.submit(() -> "rejected"))
+                .isInstanceOf(ServiceOverloadedException.class);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("running");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("С выключенным async-режимом вызов выполняется в текущем потоке.")
+    void submit_disabled_Test() {
+        //given
+        DatabaseCallExecutor executor = new DatabaseCallExecutor(false, 5, 4, 2, 1);
+        Thread caller = Thread.currentThread();
+
+        //when
+        CompletableFuture<Boolean> result = executor.submit(() -> Thread.currentThread() == caller);
+
+        //then
+        assertThat(result).isCompletedWithValue(true);
+    }
+
+    @Test
+    @DisplayName("Импортов и выгрузок не больше bulk-permits, освобождённое разрешение можно взять снова.")
+    void acquireBulkPermit_Test() {
+        //given
+        DatabaseCallExecutor executor = new DatabaseCallExecutor(false, 5, 4, 2, 1);
+
+        //when
+        DatabaseCallExecutor.BulkPermit first = executor.acquireBulkPermit();
+        DatabaseCallExecutor.BulkPermit second = executor.acquireBulkPermit();
+
+        //then
+        assertThatThrownBy(executor::acquireBulkPermit)
+                .isInstanceOf(ServiceOverloadedException.class);
+        first.close();
+        first.close();
+        DatabaseCallExecutor.BulkPermit third = executor.acquireBulkPermit();
+        assertThatThrownBy(executor::acquireBulkPermit)
+                .isInstanceOf(ServiceOverloadedException.class);
+        second.close();
+        third.close();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
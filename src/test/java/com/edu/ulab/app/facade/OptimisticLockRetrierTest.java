@@ -0,0 +1,79 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.LockingMode;
+import com.edu.ulab.app.config.UnitTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование функционала {@link OptimisticLockRetrier}.
+ */
+@UnitTest
+@DisplayName("Testing optimistic lock retrier.")
+public class OptimisticLockRetrierTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Конфликт версии повторяется в новой попытке, после успеха возвращается результат.")
+    void execute_retriesConflict_Test() {
+        //given
+        OptimisticLockRetrier retrier = retrier(LockingMode.OPTIMISTIC, 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        String result = retrier.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Person", 1L);
+            }
+            return "updated";
+        });
+
+        //then
+        assertThat(result).isEqualTo("updated");
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("app.locking.conflicts").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("app.locking.retries").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("После исчерпания попыток конфликт пробрасывается вызывающему.")
+    void execute_exhausted_Test() {
+        //given
+        OptimisticLockRetrier retrier = retrier(LockingMode.OPTIMISTIC, 2);
+
+        //when
+        //then
+        assertThatThrownBy(() -> retrier.execute(() -> {
+            throw new ObjectOptimisticLockingFailureException("Person", 1L);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(meterRegistry.counter("app.locking.retries.exhausted").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("В пессимистическом режиме вызов не повторяется.")
+    void execute_pessimistic_Test() {
+        //given
+        OptimisticLockRetrier retrier = retrier(LockingMode.PESSIMISTIC, 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        //then
+        assertThatThrownBy(() -> retrier.execute(() -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Person", 1L);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    private OptimisticLockRetrier retrier(LockingMode mode, int maxAttempts) {
+        return new OptimisticLockRetrier(mode, maxAttempts, Duration.ofMillis(1), Duration.ofMillis(2), meterRegistry);
+    }
+}
@@ -0,0 +1,186 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.ServiceBackend;
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.repository.IdempotentRequest;
+import com.edu.ulab.app.repository.IdempotentRequestRepository;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link RequestDeduplicator}.
+ */
+@UnitTest
+@DisplayName("Testing request id deduplication.")
+public class RequestDeduplicatorTest {
+    @Mock
+    UserDataFacade userDataFacade;
+
+    @Mock
+    IdempotentRequestRepository idempotentRequestRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Повтор с тем же rqid получает исходный ответ из кэша без записи, с другим телом - отклоняется.")
+    void replayFromCache_Test() {
+        //given
+        RequestDeduplicator deduplicator = deduplicator();
+        UserBookRequest request = request("first");
+        when(idempotentRequestRepository.claim("rq-1", deduplicator.requestHash(request))).thenReturn(true);
+        when(userDataFacade.createUserWithBooks(request)).thenReturn(UserBookResponse.builder()
+                .userId(1L)
+                .booksIdList(List.of(2L, 3L))
+                .build());
+
+        //when
+        UserBookResponse created = deduplicator.createUserWithBooks("rq-1", request);
+        Optional<UserBookResponse> replayed = deduplicator.findCompleted("rq-1", request("first"));
+
+        //then
+        verify(idempotentRequestRepository).complete("rq-1", 1L, List.of(2L, 3L));
+        verify(userDataFacade, times(1)).createUserWithBooks(any(UserBookRequest.class));
+        assertThat(replayed).hasValue(created);
+        assertThat(deduplicator.findCompleted("rq-2", request)).isEmpty();
+        assertThatThrownBy(() -> deduplicator.findCompleted("rq-1", request("second")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("После рестарта ключ уже занят в таблице: ответ читается из неё, создание не выполняется.")
+    void replayFromDatabase_Test() {
+        //given
+        RequestDeduplicator deduplicator = deduplicator();
+        UserBookRequest request = request("first");
+        String requestHash = deduplicator.requestHash(request);
+        when(idempotentRequestRepository.claim("rq-1", requestHash)).thenReturn(false);
+        when(idempotentRequestRepository.find("rq-1"))
+                .thenReturn(Optional.of(new IdempotentRequest("rq-1", requestHash, 1L, List.of(2L))));
+
+        //when
+        UserBookResponse replayed = deduplicator.createUserWithBooks("rq-1", request);
+
+        //then
+        verify(userDataFacade, never()).createUserWithBooks(any(UserBookRequest.class));
+        assertThat(replayed.getUserId()).isEqualTo(1L);
+        assertThat(replayed.getBooksIdList()).containsExactly(2L);
+        assertThat(deduplicator.findCompleted("rq-1", request)).hasValue(replayed);
+    }
+
+    @Test
+    @DisplayName("STORAGE: повтор получает исходный ответ без таблицы, упавшее создание освобождает rqid.")
+    void replayInMemoryForStorage_Test() {
+        //given
+        RequestDeduplicator deduplicator = deduplicator(ServiceBackend.STORAGE);
+        UserBookRequest request = request("first");
+        when(userDataFacade.createUserWithBooks(request))
+                .thenThrow(new IllegalStateException("storage is down"))
+                .thenReturn(UserBookResponse.builder()
+                        .userId(1L)
+                        .booksIdList(List.of(2L))
+                        .build());
+
+        //when
+        assertThatThrownBy(() -> deduplicator.createUserWithBooks("rq-1", request))
+                .isInstanceOf(IllegalStateException.class);
+        UserBookResponse created = deduplicator.createUserWithBooks("rq-1", request);
+        UserBookResponse replayed = deduplicator.createUserWithBooks("rq-1", request("first"));
+
+        //then
+        verify(userDataFacade, times(2)).createUserWithBooks(any(UserBookRequest.class));
+        verifyNoInteractions(idempotentRequestRepository, transactionManager);
+        assertThat(replayed).isEqualTo(created);
+        assertThat(replayed.getUserId()).isEqualTo(1L);
+        assertThatThrownBy(() -> deduplicator.createUserWithBooks("rq-1", request("second")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("STORAGE: параллельный повтор ждёт первое создание и получает его ответ.")
+    void concurrentReplayInMemoryForStorage_Test() throws Exception {
+        //given
+        RequestDeduplicator deduplicator = deduplicator(ServiceBackend.STORAGE);
+        UserBookRequest request = request("first");
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userDataFacade.createUserWithBooks(request)).thenAnswer(invocation -> {
+            creating.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return UserBookResponse.builder()
+                    .userId(1L)
+                    .booksIdList(List.of(2L))
+                    .build();
+        });
+
+        //when
+        CompletableFuture<UserBookResponse> first =
+                CompletableFuture.supplyAsync(() -> deduplicator.createUserWithBooks("rq-1", request));
+        assertThat(creating.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<UserBookResponse> repeated =
+                CompletableFuture.supplyAsync(() -> deduplicator.createUserWithBooks("rq-1", request));
+        release.countDown();
+
+        //then
+        assertThat(repeated.get(5, TimeUnit.SECONDS)).isEqualTo(first.get(5, TimeUnit.SECONDS));
+        verify(userDataFacade, times(1)).createUserWithBooks(any(UserBookRequest.class));
+    }
+
+    @Test
+    @DisplayName("Хэш тела - SHA-256 в hex: одинаковый для равных тел, разный для разных.")
+    void requestHash_Test() {
+        //given
+        RequestDeduplicator deduplicator = deduplicator();
+
+        //when
+        String first = deduplicator.requestHash(request("first"));
+
+        //then
+        assertThat(first).hasSize(64).matches("[0-9a-f]+");
+        assertThat(deduplicator.requestHash(request("first"))).isEqualTo(first);
+        assertThat(deduplicator.requestHash(request("second"))).isNotEqualTo(first);
+    }
+
+    private RequestDeduplicator deduplicator() {
+        return deduplicator(ServiceBackend.TEMPLATE);
+    }
+
+    private RequestDeduplicator deduplicator(ServiceBackend serviceBackend) {
+        return new RequestDeduplicator(userDataFacade, idempotentRequestRepository, transactionManager,
+                new ObjectMapper(), new SimpleMeterRegistry(), serviceBackend, true, Duration.ofHours(1), 100, 100);
+    }
+
+    private static UserBookRequest request(String fullName) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName(fullName);
+        userRequest.setTitle("reader");
+        userRequest.setAge(30);
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of());
+        return request;
+    }
+}
@@ -0,0 +1,102 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.ServiceBackend;
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.ImportSummaryResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link UserBookImporter}.
+ */
+@UnitTest
+@DisplayName("Testing NDJSON import.")
+public class UserBookImporterTest {
+    @Mock
+    UserDataFacade userDataFacade;
+
+    @Test
+    @DisplayName("Импорт NDJSON пачками. Битая строка попадает в отчёт, остальные импортируются.")
+    void importUsersWithBooks_Test() throws Exception {
+        //given
+        UserBookImporter importer = new UserBookImporter(userDataFacade, new ObjectMapper(), 2, ServiceBackend.TEMPLATE);
+        String ndjson = """
+                {"userRequest":{"fullName":"first","title":"reader","age":11},"bookRequests":[{"title":"b","author":"a","pageCount":1}]}
+                {"userRequest":{"fullName":"second","title":"writer","age":22},"bookRequests":[]}
+                not a json
+
+                {"userRequest":{"fullName":"third","title":"editor","age":33},"bookRequests":[]}
+                """;
+
+        //when
+        when(userDataFacade.createUsersWithBooks(anyList()))
+                .thenReturn(List.of(response(1L, List.of(10L)), response(2L, List.of())))
+                .thenThrow(new IllegalStateException("duplicate title"));
+        when(userDataFacade.createUserWithBooks(any(UserBookRequest.class)))
+                .thenThrow(new IllegalStateException("duplicate title"));
+
+        ImportSummaryResponse summary = importer.importUsersWithBooks(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        //then
+        assertThat(summary.getReceived()).isEqualTo(4);
+        assertThat(summary.getUsersCreated()).isEqualTo(2);
+        assertThat(summary.getBooksCreated()).isEqualTo(1);
+        assertThat(summary.getFailed()).isEqualTo(2);
+        assertThat(summary.getFailures())
+                .extracting(ImportSummaryResponse.ImportFailure::getLine)
+                .containsExactly(3L, 5L);
+        verify(userDataFacade, times(2)).createUsersWithBooks(anyList());
+    }
+
+    @Test
+    @DisplayName("Импорт в нетранзакционный бэкенд. Записи пишутся по одной, пачка не повторяется.")
+    void importUsersWithBooks_NonTransactionalBackend_Test() throws Exception {
+        //given
+        UserBookImporter importer = new UserBookImporter(userDataFacade, new ObjectMapper(), 2, ServiceBackend.STORAGE);
+        String ndjson = """
+                {"userRequest":{"fullName":"first","title":"reader","age":11},"bookRequests":[{"title":"b","author":"a","pageCount":1}]}
+                {"userRequest":{"fullName":"second","title":"writer","age":22}}
+                """;
+
+        //when
+        when(userDataFacade.createUserWithBooks(any(UserBookRequest.class)))
+                .thenReturn(response(1L, List.of(10L)))
+                .thenThrow(new IllegalStateException("duplicate title"));
+
+        ImportSummaryResponse summary = importer.importUsersWithBooks(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        //then
+        assertThat(summary.getUsersCreated()).isEqualTo(1);
+        assertThat(summary.getFailed()).isEqualTo(1);
+        assertThat(summary.getFailures())
+                .extracting(ImportSummaryResponse.ImportFailure::getLine)
+                .containsExactly(2L);
+        verify(userDataFacade, never()).createUsersWithBooks(anyList());
+        verify(userDataFacade, times(2)).createUserWithBooks(any(UserBookRequest.class));
+    }
+
+    private static UserBookResponse response(Long userId, List<Long> bookIds) {
+        return UserBookResponse.builder()
+                .userId(userId)
+                .booksIdList(bookIds)
+                .build();
+    }
+}
@@ -0,0 +1,185 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.LockingMode;
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.slf4j.MDC;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link UserUpdateCoalescer}.
+ */
+@UnitTest
+@DisplayName("Testing coalesced user updates.")
+public class UserUpdateCoalescerTest {
+    @Mock
+    UserDataFacade userDataFacade;
+
+    @Test
+    @DisplayName("Обновления за окно применяются одной пачкой, обновления одного пользователя сливаются по порядку.")
+    void submit_coalescesWindow_Test() throws Exception {
+        //given
+        UserUpdateCoalescer coalescer = coalescer();
+        UserBookRequest first = request(1L, "first", List.of(book("old")));
+        UserBookRequest second = request(2L, "second", null);
+        UserBookRequest third = request(1L, "third", null);
+
+        //when
+        when(userDataFacade.updateUsersWithBooks(anyList()))
+                .thenReturn(List.of(response(1L), response(2L)));
+        CompletableFuture<UserBookResponse> firstResult = coalescer.submit(first);
+        CompletableFuture<UserBookResponse> secondResult = coalescer.submit(second);
+        CompletableFuture<UserBookResponse> thirdResult = coalescer.submit(third);
+
+        //then
+        assertThat(firstResult.get(5, TimeUnit.SECONDS).getUserId()).isEqualTo(1L);
+        assertThat(secondResult.get(5, TimeUnit.SECONDS).getUserId()).isEqualTo(2L);
+        assertThat(thirdResult.get(5, TimeUnit.SECONDS).getUserId()).isEqualTo(1L);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UserBookRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userDataFacade, times(1)).updateUsersWithBooks(captor.capture());
+        List<UserBookRequest> applied = captor.getValue();
+        assertThat(applied).hasSize(2);
+        assertThat(applied.get(0).getUserRequest().getFullName()).isEqualTo("third");
+        assertThat(applied.get(0).getBookRequests()).extracting(BookRequest::getTitle).containsExactly("old");
+        assertThat(applied.get(1).getUserRequest().getFullName()).isEqualTo("second");
+        coalescer.stop();
+    }
+
+    @Test
+    @DisplayName("Если пачка падает, пользователи применяются по одному и ошибка получает только свой вызывающий.")
+    void submit_failedBatchIsRetriedOneByOne_Test() throws Exception {
+        //given
+        UserUpdateCoalescer coalescer = coalescer();
+
+        //when
+        when(userDataFacade.updateUsersWithBooks(anyList()))
+                .thenThrow(new NotFoundException("User with id 2 not found"))
+                .thenReturn(List.of(response(1L)))
+                .thenThrow(new NotFoundException("User with id 2 not found"));
+        CompletableFuture<UserBookResponse> found = coalescer.submit(request(1L, "found", null));
+        CompletableFuture<UserBookResponse> missing = coalescer.submit(request(2L, "missing", null));
+
+        //then
+        assertThat(found.get(5, TimeUnit.SECONDS).getUserId()).isEqualTo(1L);
+        assertThatThrownBy(() -> missing.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(NotFoundException.class);
+        verify(userDataFacade, times(3)).updateUsersWithBooks(anyList());
+        coalescer.stop();
+    }
+
+    @Test
+    @DisplayName("При конфликте версии отдельно повторяется только конфликтный пользователь, остальные идут пачкой.")
+    void submit_conflictingUserIsSplitOut_Test() throws Exception {
+        //given
+        UserUpdateCoalescer coalescer = coalescer();
+
+        //when
+        when(userDataFacade.updateUsersWithBooks(anyList()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Person.class, 2L))
+                .thenReturn(List.of(response(2L)))
+                .thenReturn(List.of(response(1L), response(3L)));
+        CompletableFuture<UserBookResponse> first = coalescer.submit(request(1L, "first", null));
+        CompletableFuture<UserBookResponse> conflicting = coalescer.submit(request(2L, "conflicting", null));
+        CompletableFuture<UserBookResponse> third = coalescer.submit(request(3L, "third", null));
+
+        //then
+        assertThat(first.get(5, TimeUnit.SECONDS).getUserId()).isEqualTo(1L);
+        assertThat(conflicting.get(5, TimeUnit.SECONDS).getUserId()).isEqualTo(2L);
+        assertThat(third.get(5, TimeUnit.SECONDS).getUserId()).isEqualTo(3L);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UserBookRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userDataFacade, times(3)).updateUsersWithBooks(captor.capture());
+        assertThat(captor.getAllValues())
+                .extracting(requests -> requests.stream().map(request -> request.getUserRequest().getId()).toList())
+                .containsExactly(List.of(1L, 2L, 3L), List.of(2L), List.of(1L, 3L));
+        coalescer.stop();
+    }
+
+    @Test
+    @DisplayName("Future завершается с MDC запроса, поставившего обновление.")
+    void submit_completesWithRequestMdc_Test() throws Exception {
+        //given
+        UserUpdateCoalescer coalescer = coalescer();
+        AtomicReference<String> completedWith = new AtomicReference<>();
+
+        //when
+        when(userDataFacade.updateUsersWithBooks(anyList()))
+                .thenReturn(List.of(response(1L)));
+        MDC.put("requestId", "rq-1");
+        CompletableFuture<UserBookResponse> result = coalescer.submit(request(1L, "first", null))
+                .thenApply(response -> {
+                    completedWith.set(MDC.get("requestId"));
+                    return response;
+                });
+        MDC.clear();
+
+        //then
+        assertThat(result.get(5, TimeUnit.SECONDS).getUserId()).isEqualTo(1L);
+        assertThat(completedWith.get()).isEqualTo("rq-1");
+        coalescer.stop();
+    }
+
+    private UserUpdateCoalescer coalescer() {
+        OptimisticLockRetrier retrier = new OptimisticLockRetrier(LockingMode.PESSIMISTIC, 1,
+                Duration.ZERO, Duration.ZERO, new SimpleMeterRegistry());
+        UserUpdateCoalescer coalescer = new UserUpdateCoalescer(userDataFacade, retrier,
+                true, 1, Duration.ofMillis(500), 100, 100);
+        coalescer.start();
+        return coalescer;
+    }
+
+    private static UserBookRequest request(Long userId, String fullName, List<BookRequest> books) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setId(userId);
+        userRequest.setFullName(fullName);
+        userRequest.setTitle("reader");
+        userRequest.setAge(30);
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(books);
+        return request;
+    }
+
+    private static BookRequest book(String title) {
+        BookRequest book = new BookRequest();
+        book.setTitle(title);
+        book.setAuthor("author");
+        book.setPageCount(100);
+        return book;
+    }
+
+    private static UserBookResponse response(Long userId) {
+        return UserBookResponse.builder()
+                .userId(userId)
+                .booksIdList(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.edu.ulab.app.loadtest;
+
+import com.edu.ulab.app.loadtest.RequestMix.Operation;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки по операциям в HdrHistogram (микросекунды, до 60 секунд с тремя значащими цифрами) и счётчики ошибок.
+ * {@link #reset} отбрасывает накопленное после прогрева.
+ */
+class LatencyRecorder {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> rejected = new EnumMap<>(Operation.class);
+    private final LongAdder dropped = new LongAdder();
+
+    LatencyRecorder() {
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+            rejected.put(operation, new LongAdder());
+        }
+    }
+
+    void recordSuccess(Operation operation, long latencyNanos) {
+        recorders.get(operation).recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    /**
+     * 503 от bulkhead считается отдельно от прочих ошибок: это штатный отказ при перегрузке.
+     */
+    void recordFailure(Operation operation, long latencyNanos, int status) {
+        recordSuccess(operation, latencyNanos);
+        (status == 503 ? rejected : errors).get(operation).increment();
+    }
+
+    /**
+     * Запрос open-модели не отправлен, потому что достигнут предел одновременных запросов.
+     */
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    void reset() {
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(LongAdder::reset);
+        rejected.values().forEach(LongAdder::reset);
+        dropped.reset();
+    }
+
+    void report(long elapsedNanos, PrintStream out, Path reportDir) throws IOException {
+        Files.createDirectories(reportDir);
+        double seconds = elapsedNanos / 1e9;
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        long totalRejected = 0;
+        out.printf("%-8s %9s %9s %8s %8s %9s %9s %9s %9s %9s%n",
+                "op", "count", "rps", "errors", "503", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            long operationErrors = errors.get(operation).sum();
+            long operationRejected = rejected.get(operation).sum();
+            totalErrors += operationErrors;
+            totalRejected += operationRejected;
+            total.add(histogram);
+            printLine(out, operation.name().toLowerCase(), histogram, seconds, operationErrors, operationRejected);
+            writeDistribution(reportDir.resolve(operation.name().toLowerCase() + ".hgrm"), histogram);
+        }
+        printLine(out, "total", total, seconds, totalErrors, totalRejected);
+        writeDistribution(reportDir.resolve("total.hgrm"), total);
+        long count = total.getTotalCount();
+        out.printf("error rate %.3f%%, 503 rate %.3f%%, dropped by client %d%n",
+                count == 0 ? 0.0 : 100.0 * totalErrors / count,
+                count == 0 ? 0.0 : 100.0 * totalRejected / count,
+                dropped.sum());
+    }
+
+    private static void printLine(PrintStream out, String name, Histogram histogram, double seconds,
+                                  long errorCount, long rejectedCount) {
+        out.printf("%-8s %9d %9.1f %8d %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, histogram.getTotalCount(), histogram.getTotalCount() / seconds, errorCount, rejectedCount,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Формат .hgrm открывается HdrHistogram plotter и сравнивается между прогонами.
+     */
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+}
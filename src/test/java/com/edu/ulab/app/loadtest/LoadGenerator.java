@@ -0,0 +1,137 @@
+package com.edu.ulab.app.loadtest;
+
+import com.edu.ulab.app.loadtest.RequestMix.Operation;
+import com.edu.ulab.app.loadtest.RequestMix.PlannedRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Две модели нагрузки.
+ * <ul>
+ *     <li>open: запросы уходят по расписанию с постоянной интенсивностью независимо от ответов.
+ *     Задержка считается от запланированного момента отправки, поэтому очередь на стороне клиента
+ *     не прячет медленные ответы (coordinated omission).</li>
+ *     <li>closed: фиксированное число клиентов, каждый отправляет следующий запрос после ответа на предыдущий.
+ *     Показывает предельную пропускную способность.</li>
+ * </ul>
+ */
+class LoadGenerator {
+    private final HttpClient httpClient;
+    private final RequestMix requestMix;
+    private final UserPool userPool;
+    private final LatencyRecorder latencyRecorder;
+    private final ObjectMapper objectMapper;
+
+    LoadGenerator(HttpClient httpClient, RequestMix requestMix, UserPool userPool,
+                  LatencyRecorder latencyRecorder, ObjectMapper objectMapper) {
+        this.httpClient = httpClient;
+        this.requestMix = requestMix;
+        this.userPool = userPool;
+        this.latencyRecorder = latencyRecorder;
+        this.objectMapper = objectMapper;
+    }
+
+    void runOpen(Duration duration, int rate, int maxInFlight) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!inFlight.tryAcquire()) {
+                latencyRecorder.recordDropped();
+                continue;
+            }
+            PlannedRequest planned = requestMix.next();
+            httpClient.sendAsync(planned.request(), HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, error) -> {
+                        complete(planned, response, error, System.nanoTime() - intended);
+                        inFlight.release();
+                    });
+        }
+        if (!inFlight.tryAcquire(maxInFlight, 60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Requests still in flight after 60 seconds");
+        }
+    }
+
+    void runClosed(Duration duration, int clients) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    send(requestMix.next());
+                }
+            }, "load-client-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    void preload(int users) {
+        for (int i = 0; i < users; i++) {
+            send(requestMix.create());
+        }
+    }
+
+    private void send(PlannedRequest planned) {
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = null;
+        Throwable error = null;
+        try {
+            response = httpClient.send(planned.request(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = e;
+        }
+        complete(planned, response, error, System.nanoTime() - start);
+    }
+
+    private void complete(PlannedRequest planned, HttpResponse<byte[]> response, Throwable error, long latencyNanos) {
+        Operation operation = planned.operation();
+        if (error != null || response == null) {
+            latencyRecorder.recordFailure(operation, latencyNanos, 0);
+            return;
+        }
+        if (response.statusCode() / 100 != 2) {
+            latencyRecorder.recordFailure(operation, latencyNanos, response.statusCode());
+            if (operation == Operation.DELETE) {
+                userPool.add(planned.userId());
+            }
+            return;
+        }
+        latencyRecorder.recordSuccess(operation, latencyNanos);
+        if (operation == Operation.CREATE) {
+            try {
+                JsonNode userId = objectMapper.readTree(response.body()).get("userId");
+                if (userId != null) {
+                    userPool.add(userId.asLong());
+                }
+            } catch (IOException ignored) {
+                // ответ уже учтён как успешный, пользователь просто не попадёт в пул
+            }
+        }
+    }
+}
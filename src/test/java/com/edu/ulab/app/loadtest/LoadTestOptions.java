@@ -0,0 +1,48 @@
+package com.edu.ulab.app.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Параметры прогона в виде {@code --key=value}.
+ *
+ * @param mode        {@code open} - постоянная интенсивность запросов, {@code closed} - фиксированное число клиентов
+ * @param rate        запросов в секунду для open-модели
+ * @param concurrency клиентов для closed-модели и предел одновременных запросов для open-модели
+ * @param baseUrl     адрес запущенного приложения; если не задан, приложение поднимается в этом процессе
+ * @param mix         веса операций, например {@code create:20,get:50,update:20,delete:10}
+ * @param preload     сколько пользователей создать до начала замера
+ */
+record LoadTestOptions(String mode,
+                       int rate,
+                       int concurrency,
+                       Duration warmup,
+                       Duration duration,
+                       String baseUrl,
+                       String mix,
+                       int preload,
+                       Path reportDir) {
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadTestOptions(
+                values.getOrDefault("mode", "open"),
+                Integer.parseInt(values.getOrDefault("rate", "200")),
+                Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                Duration.parse("PT" + values.getOrDefault("warmup", "10s")),
+                Duration.parse("PT" + values.getOrDefault("duration", "60s")),
+                values.get("base-url"),
+                values.getOrDefault("mix", "create:20,get:50,update:20,delete:10"),
+                Integer.parseInt(values.getOrDefault("preload", "1000")),
+                Path.of(values.getOrDefault("report-dir", "target/loadtest")));
+    }
+}
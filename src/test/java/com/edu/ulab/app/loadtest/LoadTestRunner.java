@@ -0,0 +1,132 @@
+package com.edu.ulab.app.loadtest;
+
+import com.edu.ulab.app.AppApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+
+/**
+ * Нагрузочный прогон {@code /api/v1/user/create|update|get|delete}:
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--mode=open --rate=500 --duration=60s"
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--mode=closed --concurrency=64"
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--base-url=http://localhost:8091/app/"
+ * </pre>
+ * Без {@code --base-url} приложение поднимается в этом же процессе на случайном порту: backend STORAGE,
+ * вместо Postgres in-memory H2, которая нужна только менеджеру транзакций. Так прогон не требует внешних сервисов,
+ * но измеряет web-слой, bulkhead, коалесцер и фасад без БД. Для сравнения backend-ов приложение запускается
+ * отдельно и передаётся через {@code --base-url}.
+ * <p>
+ * Отчёт печатается в консоль и сохраняется в {@code report-dir}: {@code summary.txt} и {@code .hgrm} по операциям.
+ */
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext context = null;
+        try {
+            URI baseUrl;
+            if (options.baseUrl() == null) {
+                context = startApplication();
+                baseUrl = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                        + context.getEnvironment().getProperty("server.servlet.context-path", "") + "/");
+            } else {
+                baseUrl = URI.create(options.baseUrl().endsWith("/") ? options.baseUrl() : options.baseUrl() + "/");
+            }
+            run(options, baseUrl);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void run(LoadTestOptions options, URI baseUrl) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        UserPool userPool = new UserPool(100_000);
+        LatencyRecorder latencyRecorder = new LatencyRecorder();
+        RequestMix requestMix = new RequestMix(baseUrl, options.mix(), objectMapper, userPool);
+        LoadGenerator generator = new LoadGenerator(httpClient, requestMix, userPool, latencyRecorder, objectMapper);
+
+        System.out.printf("Target %s, mode %s, preloading %d users%n", baseUrl, options.mode(), options.preload());
+        generator.preload(options.preload());
+        System.out.printf("Warmup %s%n", options.warmup());
+        load(generator, options, options.warmup());
+        latencyRecorder.reset();
+
+        System.out.printf("Measuring %s%n", options.duration());
+        long start = System.nanoTime();
+        load(generator, options, options.duration());
+        long elapsed = System.nanoTime() - start;
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (PrintStream report = new PrintStream(buffer, true, StandardCharsets.UTF_8)) {
+            report.printf("mode %s, rate %d, concurrency %d, duration %s, mix %s, users in pool %d%n",
+                    options.mode(), options.rate(), options.concurrency(), options.duration(), options.mix(), userPool.size());
+            latencyRecorder.report(elapsed, report, options.reportDir());
+        }
+        String summary = buffer.toString(StandardCharsets.UTF_8);
+        System.out.print(summary);
+        Files.writeString(options.reportDir().resolve("summary.txt"), summary);
+        System.out.printf("Report saved to %s%n", options.reportDir().toAbsolutePath());
+    }
+
+    private static void load(LoadGenerator generator, LoadTestOptions options, Duration duration) throws InterruptedException {
+        switch (options.mode()) {
+            case "open" -> generator.runOpen(duration, options.rate(), options.concurrency() * 16);
+            case "closed" -> generator.runClosed(duration, options.concurrency());
+            default -> throw new IllegalArgumentException("Unknown mode " + options.mode() + ", expected open or closed");
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication() {
+        return new SpringApplicationBuilder(LoadTestApplication.class).run(
+                "--server.port=0",
+                "--app.service.backend=STORAGE",
+                "--app.storage.persistence.enabled=false",
+                "--app.book-purge.enabled=false",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.liquibase.enabled=false",
+                "--spring.jpa.hibernate.ddl-auto=none",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.com.edu.ulab=WARN",
+                "--logging.level.org.hibernate=WARN");
+    }
+
+    /**
+     * Та же конфигурация, что у {@link AppApplication}, но без тестовых {@code @TestConfiguration}
+     * (контейнер Postgres), которые лежат на test classpath и иначе попали бы в component scan.
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @AutoConfigurationPackage(basePackageClasses = AppApplication.class)
+    @ComponentScan(basePackageClasses = AppApplication.class, excludeFilters = {
+            @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = TestConfiguration.class),
+            @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = AppApplication.class)})
+    static class LoadTestApplication {
+    }
+}
@@ -0,0 +1,151 @@
+package com.edu.ulab.app.loadtest;
+
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Случайная смесь запросов к {@code /api/v1/user} по заданным весам.
+ * <p>
+ * Размер списка книг похож на реальный: в основном несколько книг, изредка сотня. Чтение, обновление и удаление
+ * берут id из {@link UserPool}; если пул пуст, вместо них выполняется создание.
+ */
+class RequestMix {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final String[] AUTHORS = {"Tolstoy", "Dostoevsky", "Chekhov", "Pushkin", "Bulgakov", "Gogol"};
+
+    private final URI userUrl;
+    private final ObjectMapper objectMapper;
+    private final UserPool userPool;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final AtomicLong sequence = new AtomicLong();
+
+    RequestMix(URI baseUrl, String mix, ObjectMapper objectMapper, UserPool userPool) {
+        this.userUrl = baseUrl.resolve("api/v1/user/");
+        this.objectMapper = objectMapper;
+        this.userPool = userPool;
+        String[] parts = mix.split(",");
+        this.operations = new Operation[parts.length];
+        this.cumulativeWeights = new int[parts.length];
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            String[] weight = parts[i].split(":");
+            operations[i] = Operation.valueOf(weight[0].trim().toUpperCase());
+            total += Integer.parseInt(weight[1].trim());
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    PlannedRequest next() {
+        int point = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        Operation operation = operations[0];
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (point < cumulativeWeights[i]) {
+                operation = operations[i];
+                break;
+            }
+        }
+        return switch (operation) {
+            case CREATE -> create();
+            case GET -> userPool.random().map(this::get).orElseGet(this::create);
+            case UPDATE -> userPool.random().map(this::update).orElseGet(this::create);
+            case DELETE -> userPool.take().map(this::delete).orElseGet(this::create);
+        };
+    }
+
+    PlannedRequest create() {
+        UserBookRequest request = userBookRequest(null);
+        return new PlannedRequest(Operation.CREATE, null, HttpRequest.newBuilder(userUrl.resolve("create"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("rqid", "load-" + sequence.incrementAndGet())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json(request)))
+                .build());
+    }
+
+    private PlannedRequest get(long userId) {
+        return new PlannedRequest(Operation.GET, userId, HttpRequest.newBuilder(userUrl.resolve("get/" + userId))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build());
+    }
+
+    private PlannedRequest update(long userId) {
+        return new PlannedRequest(Operation.UPDATE, userId, HttpRequest.newBuilder(userUrl.resolve("update"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(json(userBookRequest(userId))))
+                .build());
+    }
+
+    private PlannedRequest delete(long userId) {
+        return new PlannedRequest(Operation.DELETE, userId, HttpRequest.newBuilder(userUrl.resolve("delete/" + userId))
+                .timeout(REQUEST_TIMEOUT)
+                .DELETE()
+                .build());
+    }
+
+    private UserBookRequest userBookRequest(Long userId) {
+        long number = sequence.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UserRequest userRequest = new UserRequest();
+        userRequest.setId(userId);
+        userRequest.setFullName("Load user " + number);
+        userRequest.setTitle("load-" + System.nanoTime() + "-" + number);
+        userRequest.setAge(18 + random.nextInt(60));
+
+        int bookCount = bookCount(random);
+        List<BookRequest> books = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            BookRequest book = new BookRequest();
+            book.setTitle("Book " + random.nextInt(1000));
+            book.setAuthor(AUTHORS[random.nextInt(AUTHORS.length)]);
+            book.setPageCount(50 + random.nextInt(950));
+            books.add(book);
+        }
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(books);
+        return request;
+    }
+
+    /**
+     * 60% пользователей с 0-3 книгами, 30% с 4-20, 10% с 21-100.
+     */
+    private static int bookCount(ThreadLocalRandom random) {
+        int bucket = random.nextInt(10);
+        if (bucket < 6) {
+            return random.nextInt(4);
+        }
+        if (bucket < 9) {
+            return 4 + random.nextInt(17);
+        }
+        return 21 + random.nextInt(80);
+    }
+
+    private byte[] json(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    enum Operation {
+        CREATE, GET, UPDATE, DELETE
+    }
+
+    record PlannedRequest(Operation operation, Long userId, HttpRequest request) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.edu.ulab.app.loadtest;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Id созданных пользователей для чтения, обновления и удаления. Удаляемый id забирается из пула,
+ * чтобы два клиента не удаляли одного пользователя.
+ */
+class UserPool {
+    private final long[] ids;
+    private int size;
+
+    UserPool(int capacity) {
+        this.ids = new long[capacity];
+    }
+
+    synchronized void add(long id) {
+        if (size < ids.length) {
+            ids[size++] = id;
+        } else {
+            ids[ThreadLocalRandom.current().nextInt(size)] = id;
+        }
+    }
+
+    synchronized Optional<Long> random() {
+        return size == 0 ? Optional.empty() : Optional.of(ids[ThreadLocalRandom.current().nextInt(size)]);
+    }
+
+    synchronized Optional<Long> take() {
+        if (size == 0) {
+            return Optional.empty();
+        }
+        int index = ThreadLocalRandom.current().nextInt(size);
+        long id = ids[index];
+        ids[index] = ids[--size];
+        return Optional.of(id);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,68 @@
+package com.edu.ulab.app.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.core.spi.FilterReply;
+import com.edu.ulab.app.config.UnitTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование функционала {@link PayloadSamplingTurboFilter}.
+ */
+@UnitTest
+@DisplayName("Testing payload log sampling.")
+public class PayloadSamplingTurboFilterTest {
+    private final PayloadSamplingTurboFilter filter = new PayloadSamplingTurboFilter();
+
+    @AfterEach
+    void clearMdc() {
+        MDC.clear();
+    }
+
+    @Test
+    @DisplayName("Решение по requestId одинаково для всех сообщений запроса, доля выбранных близка к sampleRate.")
+    void decide_sampledByRequestId_Test() {
+        //given
+        filter.setSampleRate(0.1);
+
+        //when
+        long sampled = IntStream.range(0, 10_000)
+                .mapToObj(i -> "rq-" + i)
+                .filter(requestId -> {
+                    MDC.put("requestId", requestId);
+                    FilterReply first = decide();
+                    FilterReply second = decide();
+                    assertThat(second).isEqualTo(first);
+                    return first == FilterReply.NEUTRAL;
+                })
+                .count();
+
+        //then
+        assertThat(sampled).isBetween(800L, 1200L);
+    }
+
+    @Test
+    @DisplayName("Без requestId payload отбрасывается, сообщения без маркера не фильтруются.")
+    void decide_withoutRequestId_Test() {
+        //given
+        filter.setSampleRate(0.5);
+
+        //when
+        FilterReply payload = decide();
+        FilterReply plain = filter.decide(null, null, Level.INFO, "Created users: {}", null, null);
+
+        //then
+        assertThat(payload).isEqualTo(FilterReply.DENY);
+        assertThat(plain).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    private FilterReply decide() {
+        return filter.decide(LogMarkers.PAYLOAD, null, Level.INFO, "Got user: {}", null, null);
+    }
+}
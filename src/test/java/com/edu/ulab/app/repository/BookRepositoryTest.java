@@ -1,8 +1,15 @@
 package com.edu.ulab.app.repository;
 
+import com.edu.ulab.app.config.LockingMode;
 import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookDto;
 import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.service.impl.BookServiceImpl;
+import com.edu.ulab.app.service.impl.UserServiceImpl;
 import com.vladmihalcea.sql.SQLStatementCountValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,6 +19,9 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.List;
+import java.util.Set;
+
 import static com.vladmihalcea.sql.SQLStatementCountValidator.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -65,6 +75,79 @@ public class BookRepositoryTest {
         assertDeleteCount(0);
     }
 
+    @DisplayName("Получить юзера с книгами через JPA-сервис. Число select должно равняться 1")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void getUserWithBooks_thenAssertDmlCount() {
+        //Given
+        UserServiceImpl userService = new UserServiceImpl(userRepository, new UserMapperImpl(), new BookMapperImpl(),
+                LockingMode.PESSIMISTIC);
+
+        //When
+        UserBookDto result = userService.getUserWithBooks(1001L);
+
+        //Then
+        assertThat(result.getUser().getFullName()).isEqualTo("default uer");
+        assertThat(result.getBooks()).extracting(BookDto::getTitle)
+                .containsExactlyInAnyOrder("default book", "more default book");
+        assertSelectCount(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Получить страницу книг юзера после заданного id. Число select должно равняться 1")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void findBooksPageByPerson_thenAssertDmlCount() {
+        //When
+        List<Book> firstPage = bookRepository.findPageByPersonId(1001L, 0L, PageRequest.ofSize(1));
+        List<Book> secondPage = bookRepository.findPageByPersonId(1001L, 2002L, PageRequest.ofSize(1));
+
+        //Then
+        assertThat(firstPage).extracting(Book::getId).containsExactly(2002L);
+        assertThat(secondPage).extracting(Book::getId).containsExactly(3003L);
+        assertSelectCount(2);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Удалить юзера, у которого книг больше chunk-size. Остаток книг переживает юзера до следующего прохода")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void deleteUserWithBooksOverChunkSize_thenRemainingBooksSurvive() {
+        //Given
+        BookServiceImpl bookService = new BookServiceImpl(bookRepository, userRepository, new BookMapperImpl(),
+                LockingMode.PESSIMISTIC);
+        UserServiceImpl userService = new UserServiceImpl(userRepository, new UserMapperImpl(), new BookMapperImpl(),
+                LockingMode.PESSIMISTIC);
+
+        //When
+        Set<Long> remaining = bookService.deleteBookChunksByUserIds(List.of(1001L), 1);
+        userService.deleteUsersByIds(List.of(1001L));
+
+        //Then
+        assertThat(remaining).containsExactly(1001L);
+        assertThat(userRepository.findById(1001L)).isEmpty();
+        assertThat(bookRepository.findAllByPersonId(1001L)).hasSize(1);
+        assertThat(bookService.deleteBookChunksByUserIds(List.of(1001L), 1)).containsExactly(1001L);
+        assertThat(bookService.deleteBookChunksByUserIds(List.of(1001L), 1)).isEmpty();
+        assertThat(bookRepository.findAllByPersonId(1001L)).isEmpty();
+    }
+
     // update
     // get
     // get all
@@ -0,0 +1,51 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.UnitTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link SequenceIdAllocator}.
+ */
+@UnitTest
+@DisplayName("Testing block id allocation.")
+public class SequenceIdAllocatorTest {
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("id выдаются из блока hi * blockSize, для пачки недостающие блоки берутся одним запросом.")
+    void nextIds_Test() {
+        //given
+        SequenceIdAllocator allocator = new SequenceIdAllocator(jdbcTemplate, 10);
+
+        //when
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1)))
+                .thenReturn(List.of(3L));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(2)))
+                .thenReturn(List.of(7L, 9L));
+        long first = allocator.nextId();
+        long[] batch = allocator.nextIds(25);
+        long next = allocator.nextId();
+
+        //then
+        assertThat(first).isEqualTo(30);
+        assertThat(batch).containsExactly(31, 32, 33, 34, 35, 36, 37, 38, 39,
+                70, 71, 72, 73, 74, 75, 76, 77, 78, 79,
+                90, 91, 92, 93, 94, 95);
+        assertThat(next).isEqualTo(96);
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), eq(1));
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), eq(2));
+    }
+}
@@ -51,6 +51,27 @@ public class UserRepositoryTest {
         assertDeleteCount(0);
     }
 
+    @DisplayName("Получить юзера с книгами. Число select должно равняться 1")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void findPersonWithBooks_thenAssertDmlCount() {
+        //When
+        Person result = userRepository.findWithBooksById(1001).orElseThrow();
+
+        //Then
+        assertThat(result.getBookSet()).hasSize(2);
+        assertThat(result.getBookSet())
+                .allSatisfy(book -> assertThat(book.getPerson().getFullName()).isEqualTo("default uer"));
+        assertSelectCount(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
     // update
     // get
     // get all
@@ -0,0 +1,75 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookDto;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.vladmihalcea.sql.SQLStatementCountValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.jdbc.Sql;
+
+import static com.vladmihalcea.sql.SQLStatementCountValidator.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты запросов чтения {@link UserServiceImplTemplate} к таблицам PERSON и BOOK.
+ */
+@SystemJpaTest
+public class UserTemplateQueryTest {
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    SequenceIdAllocator sequenceIdAllocator;
+
+    UserServiceImplTemplate userService;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserServiceImplTemplate(jdbcTemplate, sequenceIdAllocator);
+        SQLStatementCountValidator.reset();
+    }
+
+    @DisplayName("Получить юзера с книгами через JdbcTemplate. Число select должно равняться 1")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/4_insert_template_data.sql"})
+    void getUserWithBooks_thenAssertDmlCount() {
+        //When
+        UserBookDto result = userService.getUserWithBooks(1001L);
+
+        //Then
+        assertThat(result.getUser().getFullName()).isEqualTo("default uer");
+        assertThat(result.getBooks()).extracting(BookDto::getTitle)
+                .containsExactlyInAnyOrder("default book", "more default book");
+        assertSelectCount(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Получить юзера без книг через JdbcTemplate. Число select должно равняться 1")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/4_insert_template_data.sql"})
+    void getUserWithoutBooks_thenAssertDmlCount() {
+        //Given
+        jdbcTemplate.update("DELETE FROM BOOK WHERE USER_ID = ?", 1001L);
+        SQLStatementCountValidator.reset();
+
+        //When
+        UserBookDto result = userService.getUserWithBooks(1001L);
+
+        //Then
+        assertThat(result.getUser().getFullName()).isEqualTo("default uer");
+        assertThat(result.getBooks()).isEmpty();
+        assertSelectCount(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+}
@@ -0,0 +1,73 @@
+package com.edu.ulab.app.search;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.service.BookService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование функционала {@link BookSearchIndex}.
+ */
+@UnitTest
+@DisplayName("Testing book search index.")
+public class BookSearchIndexTest {
+    @Mock
+    BookService bookService;
+
+    @Test
+    @DisplayName("Поиск по подстроке без учёта регистра: совпадение в названии выше совпадения в авторе, выдача по страницам.")
+    void search_Test() {
+        //given
+        BookSearchIndex index = new BookSearchIndex(bookService);
+        index.index(book(1L, 10L, "Lord of the Rings", "Tolkien"));
+        index.index(book(2L, 10L, "Yellow Submarine", "Ringo Starr"));
+        index.index(book(3L, 11L, "Rings", "Unknown"));
+        index.index(book(4L, 11L, "Brighton Rock", "Greene"));
+
+        //when
+        BookSearchResult firstPage = index.search("RING", 0, 2);
+        BookSearchResult secondPage = index.search("RING", 1, 2);
+
+        //then
+        assertThat(firstPage.total()).isEqualTo(3);
+        assertThat(firstPage.hits()).extracting(BookSearchHit::id).containsExactly(3L, 1L);
+        assertThat(secondPage.hits()).extracting(BookSearchHit::id).containsExactly(2L);
+        assertThatThrownBy(() -> index.search("ri", 0, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Изменённая книга ищется только по новому названию, книги удалённого пользователя пропадают из выдачи.")
+    void reindexAndRemoveUser_Test() {
+        //given
+        BookSearchIndex index = new BookSearchIndex(bookService);
+        index.index(book(1L, 10L, "Dune", "Herbert"));
+        index.index(book(2L, 11L, "Dune Messiah", "Herbert"));
+
+        //when
+        index.index(book(1L, 10L, "Solaris", "Lem"));
+        index.removeUsersAfterCommit(List.of(11L));
+
+        //then
+        assertThat(index.search("dune", 0, 10).total()).isZero();
+        assertThat(index.search("herbert", 0, 10).total()).isZero();
+        assertThat(index.search("solar", 0, 10).hits()).extracting(BookSearchHit::id).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    private static BookDto book(Long id, Long userId, String title, String author) {
+        BookDto bookDto = new BookDto();
+        bookDto.setId(id);
+        bookDto.setUserId(userId);
+        bookDto.setTitle(title);
+        bookDto.setAuthor(author);
+        bookDto.setPageCount(100);
+        return bookDto;
+    }
+}
@@ -5,6 +5,7 @@ import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.UserRepository;
 import com.edu.ulab.app.service.impl.BookServiceImpl;
 import com.edu.ulab.app.service.impl.UserServiceImpl;
 import org.junit.jupiter.api.DisplayName;
@@ -16,7 +17,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -32,6 +37,9 @@ public class BookServiceImplTest {
     @Mock
     BookRepository bookRepository;
 
+    @Mock
+    UserRepository userRepository;
+
     @Mock
     BookMapper bookMapper;
 
@@ -40,7 +48,7 @@ public class BookServiceImplTest {
     void saveBook_Test() {
         //given
         Person person  = new Person();
-        person.setId(1);
+        person.setId(1L);
 
         BookDto bookDto = new BookDto();
         bookDto.setUserId(1L);
@@ -62,7 +70,7 @@ public class BookServiceImplTest {
         book.setPerson(person);
 
         Book savedBook = new Book();
-        savedBook.setId(1);
+        savedBook.setId(1L);
         savedBook.setPageCount(1000);
         savedBook.setTitle("test title");
         savedBook.setAuthor("test author");
@@ -81,6 +89,70 @@ public class BookServiceImplTest {
     }
 
 
+    @Test
+    @DisplayName("Создание списка книг. Все книги сохраняются одним вызовом репозитория, счётчики владельца растут.")
+    void saveBooks_Test() {
+        //given
+        Person person  = new Person();
+        person.setId(1L);
+
+        BookDto bookDto = new BookDto();
+        bookDto.setUserId(1L);
+        bookDto.setAuthor("test author");
+        bookDto.setTitle("test title");
+        bookDto.setPageCount(1000);
+
+        BookDto result = new BookDto();
+        result.setId(1L);
+        result.setUserId(1L);
+        result.setAuthor("test author");
+        result.setTitle("test title");
+        result.setPageCount(1000);
+
+        Book book = new Book();
+        book.setPageCount(1000);
+        book.setTitle("test title");
+        book.setAuthor("test author");
+        book.setPerson(person);
+
+        Book savedBook = new Book();
+        savedBook.setId(1L);
+        savedBook.setPageCount(1000);
+        savedBook.setTitle("test title");
+        savedBook.setAuthor("test author");
+        savedBook.setPerson(person);
+
+        //when
+
+        when(bookMapper.bookDtoListToBookList(List.of(bookDto))).thenReturn(List.of(book));
+        when(bookRepository.saveAll(List.of(book))).thenReturn(List.of(savedBook));
+        when(bookMapper.bookListToBookDtoList(List.of(savedBook))).thenReturn(List.of(result));
+
+
+        //then
+        List<BookDto> bookDtoResult = bookService.createBooks(List.of(bookDto));
+        assertEquals(1, bookDtoResult.size());
+        assertEquals(1L, bookDtoResult.get(0).getId());
+        verify(userRepository).addBookTotals(1L, 1, 1000);
+    }
+
+    @Test
+    @DisplayName("Удаление книг пачкой по пользователям. В ответе остаются только пользователи с полной пачкой.")
+    void deleteBookChunksByUserIds_Test() {
+        //given
+        int chunkSize = 2;
+
+        //when
+
+        when(bookRepository.deleteChunkByPersonId(1L, chunkSize)).thenReturn(1);
+        when(bookRepository.deleteChunkByPersonId(2L, chunkSize)).thenReturn(2);
+
+
+        //then
+        Set<Long> remaining = bookService.deleteBookChunksByUserIds(List.of(1L, 2L), chunkSize);
+        assertEquals(Set.of(2L), remaining);
+    }
+
     // update
     // get
     // get all
@@ -0,0 +1,71 @@
+package com.edu.ulab.app.statistics;
+
+import com.edu.ulab.app.config.UnitTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование функционала {@link QueryStatisticsRecorder}.
+ */
+@UnitTest
+@DisplayName("Testing per-request Hibernate statistics.")
+public class QueryStatisticsRecorderTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final QueryStatisticsRecorder recorder = new QueryStatisticsRecorder(meterRegistry, 3, 10);
+    private final HibernateQueryListener listener = new HibernateQueryListener();
+
+    @AfterEach
+    void clearMdc() {
+        MDC.clear();
+    }
+
+    @Test
+    @DisplayName("Повтор одного select на каждую строку помечается как N+1 с requestId из MDC.")
+    void record_nPlusOne_Test() {
+        //given
+        MDC.put("requestId", "test-request");
+        RequestQueryStatistics statistics = RequestQueryStatistics.start(Long.MAX_VALUE);
+
+        //when
+        listener.inspect("select * from ulab_edu.person");
+        for (int i = 0; i < 3; i++) {
+            listener.inspect("select * from ulab_edu.book where person_id=?");
+        }
+        statistics.finish();
+        recorder.record("getUserWithBooks", statistics);
+
+        //then
+        List<QueryStatisticsRecorder.NPlusOneSuspect> suspects = recorder.recentSuspects();
+        assertThat(suspects).hasSize(1);
+        assertThat(suspects.get(0).requestId()).isEqualTo("test-request");
+        assertThat(suspects.get(0).repeatedSql()).isEqualTo("select * from ulab_edu.book where person_id=?");
+        assertThat(suspects.get(0).statements()).isEqualTo(4);
+        assertThat(meterRegistry.counter("app.hibernate.n-plus-one", "method", "getUserWithBooks").count()).isEqualTo(1);
+        assertThat(RequestQueryStatistics.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("Запросы без повторов попадают в распределения, но не в N+1.")
+    void record_withoutRepeats_Test() {
+        //given
+        RequestQueryStatistics statistics = RequestQueryStatistics.start(Long.MAX_VALUE);
+
+        //when
+        listener.inspect("select * from ulab_edu.person");
+        listener.inspect("select * from ulab_edu.book where person_id in (?, ?)");
+        statistics.finish();
+        recorder.record("getUserWithBooks", statistics);
+
+        //then
+        assertThat(recorder.recentSuspects()).isEmpty();
+        assertThat(meterRegistry.summary("app.hibernate.request.statements", "method", "getUserWithBooks").totalAmount())
+                .isEqualTo(2);
+    }
+}
@@ -0,0 +1,142 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.config.UnitTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты журнала и снимков хранилища {@link StoragePersistence}.
+ */
+@UnitTest
+@DisplayName("Testing storage persistence.")
+public class StoragePersistenceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Восстановление из снимка и хвоста журнала. Состояние и счётчик id совпадают.")
+    void recoverFromSnapshotAndJournal_Test() throws Exception {
+        //given
+        Storage storage = new Storage();
+        StoragePersistence persistence = new StoragePersistence(storage, directory.toString());
+        persistence.recover();
+
+        UserRecord user = storage.saveUser(new UserRecord(0, "test name", "reader", 11));
+        List<BookRecord> books = storage.saveBooks(user.id(), List.of(
+                new BookRecord(0, user.id(), "first", "author", 100),
+                new BookRecord(0, user.id(), "second", "author", 200)));
+        persistence.snapshot();
+
+        UserRecord removed = storage.saveUser(new UserRecord(0, "removed", "reader", 22));
+        storage.removeBook(books.get(0).id());
+        storage.removeUser(removed.id());
+        BookRecord third = storage.saveBook(new BookRecord(0, user.id(), "третья", "автор", 300));
+        persistence.close();
+
+        //when
+        Storage recovered = new Storage();
+        StoragePersistence recoveredPersistence = new StoragePersistence(recovered, directory.toString());
+        recoveredPersistence.recover();
+        recoveredPersistence.close();
+
+        //then
+        assertThat(recovered.findUser(user.id())).hasValue(user);
+        assertThat(recovered.findUser(removed.id())).isEmpty();
+        assertThat(recovered.findBook(books.get(0).id())).isEmpty();
+        assertThat(recovered.findBooksByUserId(user.id())).containsExactlyInAnyOrder(books.get(1), third);
+        assertThat(recovered.lastId()).isEqualTo(storage.lastId());
+    }
+
+    @Test
+    @DisplayName("Недописанный хвост журнала. Целые записи восстанавливаются, хвост отрезается.")
+    void recoverWithTornJournalTail_Test() throws Exception {
+        //given
+        Storage storage = new Storage();
+        StoragePersistence persistence = new StoragePersistence(storage, directory.toString());
+        persistence.recover();
+        UserRecord user = storage.saveUser(new UserRecord(0, "test name", "reader", 11));
+        storage.saveBook(new BookRecord(0, user.id(), "first", "author", 100));
+        persistence.close();
+
+        Path journal;
+        try (Stream<Path> files = Files.list(directory)) {
+            journal = files.filter(file -> file.getFileName().toString().startsWith("journal-")).findFirst().orElseThrow();
+        }
+        long size = Files.size(journal);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        //when
+        Storage recovered = new Storage();
+        StoragePersistence recoveredPersistence = new StoragePersistence(recovered, directory.toString());
+        recoveredPersistence.recover();
+        recoveredPersistence.close();
+
+        //then
+        assertThat(recovered.findUser(user.id())).hasValue(user);
+        assertThat(recovered.bookCount()).isZero();
+        assertThat(Files.size(journal)).isLessThan(size - 3);
+    }
+
+    @Test
+    @DisplayName("Записи параллельно со снимками. После восстановления есть каждая запись, о которой отчитались клиенту.")
+    void recoverWritesConcurrentWithSnapshots_Test() throws Exception {
+        //given
+        Storage storage = new Storage();
+        StoragePersistence persistence = new StoragePersistence(storage, directory.toString());
+        persistence.recover();
+        ConcurrentLinkedQueue<UserRecord> acknowledged = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<BookRecord> acknowledgedBooks = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+
+        //when
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(CompletableFuture.runAsync(() -> {
+                while (writing.get()) {
+                    UserRecord user = storage.saveUser(new UserRecord(0, "name", "reader", 30));
+                    acknowledged.add(user);
+                    acknowledgedBooks.add(storage.saveBook(new BookRecord(0, user.id(), "title", "author", 10)));
+                }
+            }, writers));
+        }
+        for (int i = 0; i < 50; i++) {
+            persistence.snapshot();
+        }
+        writing.set(false);
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        writers.shutdown();
+        persistence.close();
+
+        Storage recovered = new Storage();
+        StoragePersistence recoveredPersistence = new StoragePersistence(recovered, directory.toString());
+        recoveredPersistence.recover();
+        recoveredPersistence.close();
+
+        //then
+        assertThat(acknowledged).isNotEmpty();
+        assertThat(recovered.userCount()).isEqualTo(acknowledged.size());
+        assertThat(recovered.bookCount()).isEqualTo(acknowledgedBooks.size());
+        acknowledged.forEach(user -> assertThat(recovered.findUser(user.id())).hasValue(user));
+        acknowledgedBooks.forEach(book -> assertThat(recovered.findBook(book.id())).hasValue(book));
+    }
+}
@@ -0,0 +1,119 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.exception.NotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты in-memory хранилища {@link Storage}.
+ */
+@UnitTest
+@DisplayName("Testing in-memory storage.")
+public class StorageTest {
+
+    @Test
+    @DisplayName("Сохранение пользователя и книг. Идентификаторы генерируются, индекс книг пользователя заполнен.")
+    void saveUserWithBooks_Test() {
+        //given
+        Storage storage = new Storage();
+
+        //when
+        UserRecord user = storage.saveUser(new UserRecord(0, "test name", "reader", 11));
+        List<BookRecord> books = storage.saveBooks(user.id(), List.of(
+                new BookRecord(0, user.id(), "first", "author", 100),
+                new BookRecord(0, user.id(), "second", "author", 200)));
+
+        //then
+        assertThat(user.id()).isPositive();
+        assertThat(storage.findBookIdsByUserId(user.id()))
+                .containsExactly(books.get(0).id(), books.get(1).id());
+        assertThat(storage.findBook(books.get(1).id())).hasValue(books.get(1));
+    }
+
+    @Test
+    @DisplayName("Версия пользователя растёт при изменении самого пользователя и при изменении его книг.")
+    void userVersion_Test() {
+        //given
+        Storage storage = new Storage();
+        UserRecord user = storage.saveUser(new UserRecord(0, "test name", "reader", 11));
+        long created = storage.userVersion(user.id());
+
+        //when
+        BookRecord book = storage.saveBook(new BookRecord(0, user.id(), "first", "author", 100));
+        long afterBookSaved = storage.userVersion(user.id());
+        storage.removeBook(book.id());
+        long afterBookRemoved = storage.userVersion(user.id());
+        storage.saveUser(user);
+
+        //then
+        assertThat(afterBookSaved).isGreaterThan(created);
+        assertThat(afterBookRemoved).isGreaterThan(afterBookSaved);
+        assertThat(storage.userVersion(user.id())).isGreaterThan(afterBookRemoved);
+    }
+
+    @Test
+    @DisplayName("Удаление пользователя удаляет и его книги.")
+    void removeUser_Test() {
+        //given
+        Storage storage = new Storage();
+        UserRecord user = storage.saveUser(new UserRecord(0, "test name", "reader", 11));
+        BookRecord book = storage.saveBook(new BookRecord(0, user.id(), "first", "author", 100));
+
+        //when
+        storage.removeUser(user.id());
+
+        //then
+        assertThat(storage.findUser(user.id())).isEmpty();
+        assertThat(storage.findBook(book.id())).isEmpty();
+        assertThat(storage.findBookIdsByUserId(user.id())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Сохранение книги несуществующего пользователя. Должно выбросить NotFoundException.")
+    void saveBookWithoutUser_Test() {
+        Storage storage = new Storage();
+
+        assertThatThrownBy(() -> storage.saveBook(new BookRecord(0, 42, "first", "author", 100)))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("User with id 42 not found");
+    }
+
+    @Test
+    @DisplayName("Параллельная запись в LongObjectMap. Все ключи на месте после resize и удалений.")
+    void concurrentPutRemove_Test() throws Exception {
+        //given
+        LongObjectMap<String> map = new LongObjectMap<>(4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        //when
+        List<Future<?>> futures = IntStream.range(0, 4)
+                .<Future<?>>mapToObj(thread -> executor.submit(() -> {
+                    for (long key = thread * 10_000L + 1; key <= (thread + 1) * 10_000L; key++) {
+                        map.put(key, String.valueOf(key));
+                        if (key % 2 == 0) {
+                            map.remove(key);
+                        }
+                    }
+                }))
+                .toList();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        assertThat(map.size()).isEqualTo(20_000);
+        assertThat(map.get(39_999)).isEqualTo("39999");
+        assertThat(map.get(40_000)).isNull();
+    }
+}
@@ -0,0 +1,40 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.config.UnitTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование функционала {@link EntityTags}.
+ */
+@UnitTest
+@DisplayName("Testing entity tags.")
+public class EntityTagsTest {
+
+    @Test
+    @DisplayName("Тег пользователя слабый и содержит id и версию.")
+    void userBooks_Test() {
+        //when
+        String etag = EntityTags.userBooks(1L, 7L);
+
+        //then
+        assertThat(etag).isEqualTo("W/\"1-7\"");
+    }
+
+    @Test
+    @DisplayName("If-None-Match сравнивается слабо: совпадают слабый, сильный, * и тег из списка, другая версия нет.")
+    void matches_Test() {
+        //given
+        String etag = EntityTags.userBooks(1L, 7L);
+
+        //then
+        assertThat(EntityTags.matches("W/\"1-7\"", etag)).isTrue();
+        assertThat(EntityTags.matches("\"1-7\"", etag)).isTrue();
+        assertThat(EntityTags.matches("*", etag)).isTrue();
+        assertThat(EntityTags.matches("W/\"1-6\", W/\"1-7\"", etag)).isTrue();
+        assertThat(EntityTags.matches("W/\"1-6\"", etag)).isFalse();
+        assertThat(EntityTags.matches("W/\"11-7\"", etag)).isFalse();
+    }
+}
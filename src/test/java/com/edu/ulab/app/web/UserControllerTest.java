@@ -0,0 +1,93 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.facade.DatabaseCallExecutor;
+import com.edu.ulab.app.facade.OptimisticLockRetrier;
+import com.edu.ulab.app.facade.RequestDeduplicator;
+import com.edu.ulab.app.facade.UserBookExporter;
+import com.edu.ulab.app.facade.UserBookImporter;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.facade.UserUpdateCoalescer;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование условного чтения в {@link UserController}.
+ */
+@UnitTest
+@DisplayName("Testing conditional user reads.")
+public class UserControllerTest {
+    @Mock
+    UserDataFacade userDataFacade;
+    @Mock
+    UserBookImporter userBookImporter;
+    @Mock
+    UserBookExporter userBookExporter;
+    @Mock
+    UserUpdateCoalescer userUpdateCoalescer;
+    @Mock
+    OptimisticLockRetrier optimisticLockRetrier;
+    @Mock
+    RequestDeduplicator requestDeduplicator;
+
+    UserController userController;
+
+    @BeforeEach
+    void setUp() {
+        userController = new UserController(userDataFacade, userBookImporter, userBookExporter,
+                new DatabaseCallExecutor(false, 5, 4, 2, 1), userUpdateCoalescer, optimisticLockRetrier, requestDeduplicator);
+    }
+
+    @Test
+    @DisplayName("Тег из If-None-Match совпал с версией. Ответ 304 со слабым ETag, книги не читаются.")
+    void getUserWithBooks_notModified_Test() throws Exception {
+        //when
+        when(userDataFacade.getUserVersion(1L)).thenReturn(7L);
+
+        ResponseEntity<UserBookResponse> response = userController.getUserWithBooks(1L, "W/\"1-7\"")
+                .get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getETag()).isEqualTo("W/\"1-7\"");
+        assertThat(response.getHeaders().getVary()).contains(HttpHeaders.ACCEPT);
+        assertThat(response.getBody()).isNull();
+        verify(userDataFacade, never()).getUserWithBooks(anyLong());
+    }
+
+    @Test
+    @DisplayName("Версия изменилась. Ответ 200 с телом и слабым ETag новой версии.")
+    void getUserWithBooks_modified_Test() throws Exception {
+        //when
+        when(userDataFacade.getUserVersion(1L)).thenReturn(8L);
+        when(userDataFacade.getUserWithBooks(1L)).thenReturn(UserBookResponse.builder()
+                .userId(1L)
+                .booksIdList(List.of(10L))
+                .version(8L)
+                .build());
+
+        ResponseEntity<UserBookResponse> response = userController.getUserWithBooks(1L, "W/\"1-7\"")
+                .get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("W/\"1-8\"");
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getBooksIdList()).containsExactly(10L);
+    }
+}
@@ -0,0 +1,13 @@
+DELETE
+FROM BOOK;
+DELETE
+FROM PERSON;
+
+insert into PERSON (ID, FULL_NAME, TITLE, AGE)
+values (1001, 'default uer', 'reader', 55);
+
+insert into BOOK (ID, USER_ID, TITLE, AUTHOR, PAGE_COUNT)
+values (2002, 1001, 'default book', 'author', 5500);
+
+insert into BOOK (ID, USER_ID, TITLE, AUTHOR, PAGE_COUNT)
+values (3003, 1001, 'more default book', 'on more author', 6655);